@@ -0,0 +1,3 @@
+create index if not exists idx_patients_doctor_name_id on patients (doctor_username, name, id);
+create index if not exists idx_patients_name_id on patients (name, id);
+drop index if exists idx_patients_doctor;
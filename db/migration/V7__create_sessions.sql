@@ -0,0 +1,11 @@
+create table if not exists sessions (
+    id varchar(64) primary key,
+    kind varchar(16) not null,
+    username varchar(64) not null,
+    created_at timestamp not null,
+    last_seen_at timestamp not null,
+    expires_at timestamp not null
+);
+
+create index if not exists idx_sessions_expires on sessions (expires_at);
+create index if not exists idx_sessions_last_seen on sessions (last_seen_at);
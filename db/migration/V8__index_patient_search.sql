@@ -0,0 +1,5 @@
+create extension if not exists pg_trgm;
+create index if not exists idx_patients_name_trgm on patients using gin (lower(name) gin_trgm_ops);
+create index if not exists idx_patients_email_trgm on patients using gin (lower(email) gin_trgm_ops);
+create index if not exists idx_patients_phone_trgm on patients using gin (lower(phone) gin_trgm_ops);
+create index if not exists idx_patients_phone_digits_trgm on patients using gin (regexp_replace(phone, '[^0-9]', '', 'g') gin_trgm_ops);
@@ -0,0 +1,18 @@
+create table if not exists email_outbox (
+    id uuid primary key,
+    recipient varchar(255) not null,
+    subject text not null,
+    body text not null,
+    status varchar(16) not null default 'pending',
+    attempts integer not null default 0,
+    last_error text,
+    created_at timestamp not null,
+    next_attempt_at timestamp not null,
+    sent_at timestamp
+);
+
+create index if not exists idx_email_outbox_due
+    on email_outbox (next_attempt_at) where status = 'pending';
+
+create index if not exists idx_email_outbox_unsent
+    on email_outbox (status) where status <> 'sent';
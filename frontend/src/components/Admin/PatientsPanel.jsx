@@ -1,6 +1,6 @@
 import PatientCard from './PatientCard'
 
-const PatientsPanel = ({ doctor, patients }) => {
+const PatientsPanel = ({ doctor, patients, hasMore, loadingMore, onLoadMore }) => {
   return (
     <section className="admin-section">
       <div className="admin-panel">
@@ -23,6 +23,16 @@ const PatientsPanel = ({ doctor, patients }) => {
             <PatientCard key={patient.id} patient={patient} />
           ))
         )}
+        {doctor && hasMore ? (
+          <button
+            className="admin-action admin-load-more"
+            type="button"
+            onClick={onLoadMore}
+            disabled={loadingMore}
+          >
+            {loadingMore ? 'Loading...' : 'Load more patients'}
+          </button>
+        ) : null}
       </div>
     </section>
   )
@@ -25,6 +25,7 @@ const AdminDashboard = () => {
   const [loading, setLoading] = useState(true)
   const [error, setError] = useState('')
   const [selectedDoctor, setSelectedDoctor] = useState(getDoctorParam)
+  const [loadingMore, setLoadingMore] = useState(false)
 
   useEffect(() => {
     let isMounted = true
@@ -59,6 +60,28 @@ const AdminDashboard = () => {
     setSelectedDoctor(next)
   }
 
+  const handleLoadMore = async () => {
+    if (!dashboard?.nextCursor || loadingMore) {
+      return
+    }
+    setLoadingMore(true)
+    const result = await fetchAdminDashboard(selectedDoctor, dashboard.nextCursor)
+    setLoadingMore(false)
+    if (result.unauthorized) {
+      window.location.assign('/admin/login')
+      return
+    }
+    if (!result.ok) {
+      setError(result.error || 'Unable to load more patients.')
+      return
+    }
+    setDashboard((current) => ({
+      ...current,
+      patients: [...(current?.patients || []), ...(result.patients || [])],
+      nextCursor: result.nextCursor,
+    }))
+  }
+
   const handleLogout = async () => {
     await logoutAdmin()
     window.location.assign('/admin/login')
@@ -99,6 +122,9 @@ const AdminDashboard = () => {
       <PatientsPanel
         doctor={displayDoctor}
         patients={displayPatients}
+        hasMore={hasSelection && Boolean(dashboard?.nextCursor)}
+        loadingMore={loadingMore}
+        onLoadMore={handleLoadMore}
       />
     </div>
   )
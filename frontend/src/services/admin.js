@@ -18,11 +18,14 @@ export async function loginAdmin(username, password) {
   }
 }
 
-export async function fetchAdminDashboard(doctor) {
+export async function fetchAdminDashboard(doctor, cursor) {
   const params = new URLSearchParams()
   if (doctor) {
     params.set('doctor', doctor)
   }
+  if (cursor) {
+    params.set('cursor', cursor)
+  }
   const url = params.toString()
     ? `/api/admin/dashboard?${params.toString()}`
     : '/api/admin/dashboard'
@@ -1,50 +1,110 @@
 package app;
 
+import app.core.AdmissionController;
 import app.core.AppServer;
+import app.core.Middleware;
+import app.core.RequestTiming;
+import app.core.Router;
+import app.db.CachingDatabase;
 import app.db.Database;
+import app.db.GroupCommitDatabase;
 import app.db.InMemoryDatabase;
+import app.db.InstrumentedDatabase;
 import app.db.JdbcDatabase;
+import app.db.SearchIndexedDatabase;
+import app.db.StatisticsDatabase;
+import app.db.JdbcSessionStore;
+import app.log.Log;
 import app.mail.ConsoleEmailService;
 import app.mail.EmailService;
+import app.mail.OutboxDispatcher;
+import app.mail.SmtpEmailService;
+import app.mail.SmtpSettings;
+import app.metrics.MetricsRegistry;
+import app.session.InMemorySessionStore;
+import app.session.SessionSettings;
+import app.session.SessionStore;
+import app.session.SignedSessionStore;
+import app.util.Env;
 import com.sun.net.httpserver.HttpServer;
 
+import java.lang.reflect.Method;
 import java.net.InetSocketAddress;
 import java.time.ZoneId;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 public class Main {
     public static void main(String[] args) throws Exception {
         configureTimeZone();
         int port = resolvePort();
-        Database database = resolveDatabase();
-        EmailService emailService = new ConsoleEmailService();
-        AppServer app = new AppServer(database, emailService);
+        MetricsRegistry metrics = new MetricsRegistry();
+        Log.registerMetrics(metrics);
+        Database storage = resolveDatabase(metrics);
+        StatisticsDatabase statistics = new StatisticsDatabase(decorateDatabase(storage, metrics), metrics);
+        Database database = statistics;
+        OutboxDispatcher outbox = new OutboxDispatcher(database, resolveEmailService(metrics),
+                Env.intValue("OUTBOX_DISPATCHERS", 2),
+                Env.intValue("OUTBOX_BATCH_SIZE", 50),
+                Env.longValue("OUTBOX_LEASE_SECONDS", 60),
+                Env.longValue("OUTBOX_POLL_MS", 500),
+                Env.intValue("OUTBOX_MAX_ATTEMPTS", 8),
+                Env.longValue("OUTBOX_BACKOFF_MS", 1000),
+                Env.longValue("OUTBOX_BACKOFF_MAX_MS", 900_000),
+                metrics);
+        outbox.start();
+        SessionSettings sessionSettings = SessionSettings.fromEnv();
+        SessionStore sessions = resolveSessionStore("doctor", storage, sessionSettings, metrics);
+        SessionStore adminSessions = resolveSessionStore("admin", storage, sessionSettings, metrics);
+        AppServer app = new AppServer(database, statistics, outbox, sessions, adminSessions, metrics);
+        AdmissionController admission = resolveAdmission(metrics);
 
-        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
-        server.createContext("/", app::handleRoot);
-        server.createContext("/signup", app::handleSignup);
-        server.createContext("/login", app::handleLogin);
-        server.createContext("/logout", app::handleLogout);
-        server.createContext("/patients", app::handlePatients);
-        server.createContext("/patients/update", app::handlePatientUpdate);
-        server.createContext("/patients/delete", app::handlePatientDelete);
-        server.createContext("/sessions/save", app::handleSessionSave);
-        server.createContext("/prescriptions", app::handlePrescriptions);
-        server.createContext("/nlp/medication", app::handleMedicationNlp);
-        server.createContext("/admin", app::handleAdminDashboard);
-        server.createContext("/admin/login", app::handleAdminLogin);
-        server.createContext("/admin/logout", app::handleAdminLogout);
-        server.createContext("/api/admin/login", app::handleAdminApiLogin);
-        server.createContext("/api/admin/logout", app::handleAdminApiLogout);
-        server.createContext("/api/admin/dashboard", app::handleAdminDashboardData);
-        server.createContext("/assets", app::handleAdminAssets);
-        server.createContext("/delivery/confirm", app::handleDeliveryConfirm);
-        server.createContext("/delivery/respond", app::handleDeliveryResponse);
-        server.setExecutor(Executors.newCachedThreadPool());
+        Middleware doctor = app.requireDoctor();
+        Middleware doctorApi = app.requireDoctorApi();
+        Middleware admin = app.requireAdmin();
+        Middleware adminApi = app.requireAdminApi();
+        Router router = Router.builder()
+                .use(new RequestTiming(metrics))
+                .use(app.accessLog())
+                .use(app.errorMapping())
+                .get("/", app::handleRoot, doctor)
+                .get("/signup", app::handleSignup)
+                .post("/signup", app::handleSignup)
+                .get("/login", app::handleLogin)
+                .post("/login", app::handleLogin)
+                .get("/logout", app::handleLogout)
+                .post("/logout", app::handleLogout)
+                .post("/patients", app::handlePatients, doctor)
+                .post("/patients/import", app::handlePatientImport, doctorApi)
+                .post("/patients/update", app::handlePatientUpdate, doctor)
+                .post("/patients/delete", app::handlePatientDelete, doctor)
+                .post("/sessions/save", app::handleSessionSave, doctor)
+                .post("/prescriptions", app::handlePrescriptions, doctor)
+                .post("/nlp/medication", app::handleMedicationNlp, doctorApi)
+                .get("/admin", app::handleAdminDashboard, admin)
+                .get("/admin/*", app::handleAdminDashboard, admin)
+                .get("/admin/login", app::handleAdminLogin)
+                .post("/admin/login", app::handleAdminLogin)
+                .get("/admin/logout", app::handleAdminLogout)
+                .post("/admin/logout", app::handleAdminLogout)
+                .post("/api/admin/login", app::handleAdminApiLogin)
+                .post("/api/admin/logout", app::handleAdminApiLogout)
+                .get("/api/admin/dashboard", app::handleAdminDashboardData, adminApi)
+                .get("/assets/*", app::handleStaticAssets)
+                .get("/delivery/confirm", app::handleDeliveryConfirm)
+                .get("/delivery/respond", app::handleDeliveryResponse)
+                .get("/metrics", app::handleMetrics)
+                .notFound(app::handleNotFound)
+                .methodNotAllowed(app::handleMethodNotAllowed)
+                .build();
+
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), Env.intValue("HTTP_BACKLOG", 0));
+        server.createContext("/", admission.wrap(router));
+        server.setExecutor(resolveExecutor(metrics));
         server.start();
 
-        System.out.println("Server running on http://localhost:" + port);
+        Log.info("server.started", "url", "http://localhost:" + port);
     }
 
     private static int resolvePort() {
@@ -53,21 +113,106 @@ public class Main {
             try {
                 return Integer.parseInt(env);
             } catch (NumberFormatException ignored) {
-                System.out.println("Invalid PORT env var, falling back to 8080");
+                Log.warn("config.invalid", "name", "PORT", "fallback", 8080);
             }
         }
         return 8080;
     }
 
-    private static Database resolveDatabase() {
+    private static ExecutorService resolveExecutor(MetricsRegistry metrics) {
+        String mode = Env.string("SERVER_EXECUTOR", "virtual").toLowerCase();
+        if (mode.equals("virtual")) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                ExecutorService executor = (ExecutorService) factory.invoke(null);
+                metrics.gauge("http_executor_virtual_threads", "1 when requests run on virtual threads.", () -> 1);
+                Log.info("server.executor", "mode", "virtual");
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                Log.warn("server.executor", "mode", "platform", "reason", "virtual threads require Java 21+");
+            }
+        } else if (!mode.equals("platform")) {
+            Log.warn("config.invalid", "name", "SERVER_EXECUTOR", "value", mode, "fallback", "platform");
+        }
+        metrics.gauge("http_executor_virtual_threads", "1 when requests run on virtual threads.", () -> 0);
+        return Executors.newCachedThreadPool();
+    }
+
+    private static AdmissionController resolveAdmission(MetricsRegistry metrics) {
+        int maxConcurrent = Math.max(1, Env.intValue("MAX_CONCURRENT_REQUESTS", 64));
+        int maxQueued = Env.intValue("MAX_QUEUED_REQUESTS", 256);
+        long queueTimeoutMillis = Env.longValue("QUEUE_TIMEOUT_MS", 2000);
+        int retryAfterSeconds = Env.intValue("RETRY_AFTER_SECONDS", 1);
+        return new AdmissionController(maxConcurrent, maxQueued, queueTimeoutMillis, retryAfterSeconds, metrics);
+    }
+
+    private static SessionStore resolveSessionStore(String kind, Database database, SessionSettings settings, MetricsRegistry metrics) {
+        String mode = Env.string("SESSION_MODE", "memory").trim().toLowerCase();
+        if (mode.equals("jdbc")) {
+            if (database instanceof JdbcDatabase jdbc) {
+                return new JdbcSessionStore(kind, jdbc, settings,
+                        Env.longValue("SESSION_NEAR_CACHE_SECONDS", 5),
+                        Env.longValue("SESSION_TOUCH_FLUSH_MS", 5000),
+                        metrics);
+            }
+            Log.warn("config.invalid", "name", "SESSION_MODE", "value", mode, "store", kind, "reason", "DB_URL not set", "fallback", "memory");
+        } else if (mode.equals("signed")) {
+            String key = Env.string("SESSION_SIGNING_KEY", "");
+            if (!key.isBlank()) {
+                return new SignedSessionStore(kind, key,
+                        Env.string("SESSION_SIGNING_KEY_PREVIOUS", ""),
+                        Env.longValue("SESSION_KEY_GRACE_SECONDS", 86400),
+                        settings,
+                        Env.intValue("SESSION_REVOCATION_MAX", 10_000),
+                        metrics);
+            }
+            Log.warn("config.invalid", "name", "SESSION_MODE", "value", mode, "store", kind, "reason", "SESSION_SIGNING_KEY not set", "fallback", "memory");
+        } else if (!mode.equals("memory")) {
+            Log.warn("config.invalid", "name", "SESSION_MODE", "value", mode, "store", kind, "fallback", "memory");
+        }
+        return new InMemorySessionStore(kind, settings, metrics);
+    }
+
+    private static Database resolveDatabase(MetricsRegistry metrics) {
         String url = System.getenv("DB_URL");
         if (url == null || url.isBlank()) {
-            System.out.println("DB_URL not set; using in-memory database.");
+            Log.info("database.mode", "mode", "in-memory", "reason", "DB_URL not set");
             return new InMemoryDatabase();
         }
         String user = System.getenv("DB_USER");
         String password = System.getenv("DB_PASS");
-        return new JdbcDatabase(url, user == null ? "" : user, password == null ? "" : password);
+        return new JdbcDatabase(url, user == null ? "" : user, password == null ? "" : password, metrics);
+    }
+
+    private static EmailService resolveEmailService(MetricsRegistry metrics) {
+        if (Env.string("SMTP_HOST", "").isEmpty()) {
+            Log.info("email.mode", "mode", "console", "reason", "SMTP_HOST not set");
+            return new ConsoleEmailService();
+        }
+        SmtpSettings settings = SmtpSettings.fromEnv();
+        Log.info("email.mode", "mode", "smtp", "host", settings.host(), "port", settings.port(), "tls", settings.tls(),
+                "pool", settings.poolSize());
+        return new SmtpEmailService(settings, metrics);
+    }
+
+    private static Database decorateDatabase(Database database, MetricsRegistry metrics) {
+        boolean shared = database instanceof JdbcDatabase;
+        database = new InstrumentedDatabase(database, metrics);
+        if (Env.flag("DIAGNOSIS_GROUP_COMMIT_ENABLED", true)) {
+            database = new GroupCommitDatabase(database,
+                    Env.intValue("DIAGNOSIS_QUEUE_CAPACITY", 1024),
+                    Env.intValue("DIAGNOSIS_BATCH_MAX", 256),
+                    Env.longValue("DIAGNOSIS_GROUP_COMMIT_MS", 2),
+                    Env.longValue("DIAGNOSIS_QUEUE_TIMEOUT_MS", 2000),
+                    metrics);
+        }
+        if (Env.flag("SEARCH_INDEX_ENABLED", !shared)) {
+            database = new SearchIndexedDatabase(database, Env.intValue("SEARCH_INDEX_MAX_DOCTORS", 1000), metrics);
+        }
+        if (Env.flag("DB_CACHE_ENABLED", !shared)) {
+            database = new CachingDatabase(database, Env.intValue("DB_CACHE_MAX_ENTRIES", 10000), metrics);
+        }
+        return database;
     }
 
     private static void configureTimeZone() {
@@ -76,7 +221,7 @@ public class Main {
             tz = "UTC";
         }
         if (!ZoneId.getAvailableZoneIds().contains(tz)) {
-            System.out.println("Invalid DB_TIMEZONE '" + tz + "', falling back to UTC.");
+            Log.warn("config.invalid", "name", "DB_TIMEZONE", "value", tz, "fallback", "UTC");
             tz = "UTC";
         }
         System.setProperty("user.timezone", tz);
@@ -0,0 +1,94 @@
+package app.core;
+
+import app.metrics.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AdmissionController {
+    private static final byte[] BUSY_BODY = "Server busy, please retry shortly.".getBytes(StandardCharsets.UTF_8);
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final int retryAfterSeconds;
+    private final Semaphore permits;
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder admitted;
+    private final LongAdder rejected;
+    private final LongAdder timedOut;
+
+    public AdmissionController(int maxConcurrent, int maxQueued, long queueTimeoutMillis, int retryAfterSeconds,
+                               MetricsRegistry metrics) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = Math.max(0, maxQueued);
+        this.queueTimeoutMillis = Math.max(0, queueTimeoutMillis);
+        this.retryAfterSeconds = Math.max(1, retryAfterSeconds);
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.admitted = metrics.counter("http_admission_admitted_total", "Requests admitted to a handler.");
+        this.rejected = metrics.counter("http_admission_rejected_total", "Requests rejected with 503 because the queue was full.");
+        this.timedOut = metrics.counter("http_admission_queue_timeouts_total", "Requests rejected with 503 after waiting too long in the queue.");
+        metrics.gauge("http_admission_max_concurrent", "Configured concurrent request limit.", () -> this.maxConcurrent);
+        metrics.gauge("http_admission_max_queued", "Configured admission queue depth.", () -> this.maxQueued);
+        metrics.gauge("http_admission_active", "Requests currently executing a handler.", active::get);
+        metrics.gauge("http_admission_queued", "Requests currently waiting for a permit.", queued::get);
+    }
+
+    public HttpHandler wrap(HttpHandler handler) {
+        return exchange -> handle(exchange, handler);
+    }
+
+    private void handle(HttpExchange exchange, HttpHandler handler) throws IOException {
+        if (!permits.tryAcquire()) {
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.increment();
+                reject(exchange);
+                return;
+            }
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            } finally {
+                queued.decrementAndGet();
+            }
+            if (!acquired) {
+                timedOut.increment();
+                reject(exchange);
+                return;
+            }
+        }
+        admitted.increment();
+        active.incrementAndGet();
+        try {
+            handler.handle(exchange);
+        } finally {
+            active.decrementAndGet();
+            permits.release();
+        }
+    }
+
+    private void reject(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.getResponseHeaders().set("Connection", "close");
+        exchange.sendResponseHeaders(503, BUSY_BODY.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(BUSY_BODY);
+        }
+    }
+}
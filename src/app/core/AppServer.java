@@ -1,163 +1,169 @@
 package app.core;
 
 import app.db.Database;
-import app.mail.EmailService;
+import app.db.Page;
+import app.db.StatisticsDatabase;
+import app.log.Log;
+import app.mail.OutboxDispatcher;
+import app.metrics.MetricsRegistry;
 import app.model.DiagnosisSession;
 import app.model.Doctor;
+import app.model.OutboxEmail;
 import app.model.Patient;
 import app.nlp.MedicationNlp;
 import app.nlp.MedicationParseResult;
+import app.session.SessionStore;
+import app.util.Env;
+import app.util.JsonWriter;
+import app.util.OverloadedException;
 import app.util.PasswordHasher;
 import app.view.HtmlTemplates;
+import app.view.HtmlView;
+import app.view.HtmlWriter;
+import app.view.PageAssets;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 
 public class AppServer {
+    private static final String DOCTOR_ATTRIBUTE = "app.doctor";
+    private static final int MAX_PAGE_SIZE = 500;
+
     private final Database database;
-    private final EmailService emailService;
-    private final Map<String, String> sessions = new ConcurrentHashMap<>();
-    private final Map<String, String> adminSessions = new ConcurrentHashMap<>();
+    private final StatisticsDatabase statistics;
+    private final OutboxDispatcher outbox;
+    private final MetricsRegistry metrics;
+    private final ResponseCompression compression;
+    private final StaticAssets staticAssets;
+    private final PrincipalCache principals;
+    private final SessionStore sessions;
+    private final SessionStore adminSessions;
     private final MedicationNlp medicationNlp = new MedicationNlp();
     private final String adminUser;
     private final String adminPass;
-    private final String deliveryTokenSecret;
+    private final DeliveryTokenService deliveryTokens;
+    private final PatientImport patientImport;
+    private final String metricsToken;
+    private final int pageSize;
 
-    public AppServer(Database database, EmailService emailService) {
+    public AppServer(Database database, StatisticsDatabase statistics, OutboxDispatcher outbox, SessionStore sessions, SessionStore adminSessions,
+                     MetricsRegistry metrics) {
         this.database = database;
-        this.emailService = emailService;
+        this.statistics = statistics;
+        this.outbox = outbox;
+        this.sessions = sessions;
+        this.adminSessions = adminSessions;
+        this.metrics = metrics;
+        this.compression = ResponseCompression.fromEnv(metrics);
+        this.staticAssets = new StaticAssets(adminUiRoot(), metrics);
+        publishPageAssets();
+        this.principals = PrincipalCache.fromEnv(metrics);
+        this.metricsToken = System.getenv("METRICS_TOKEN");
+        this.pageSize = Math.max(1, Math.min(MAX_PAGE_SIZE, Env.intValue("PATIENT_PAGE_SIZE", 50)));
         this.adminUser = resolveAdminUser();
         this.adminPass = resolveAdminPass();
-        this.deliveryTokenSecret = resolveDeliveryTokenSecret();
+        this.deliveryTokens = DeliveryTokenService.fromEnv();
+        this.patientImport = new PatientImport(database, Env.intValue("IMPORT_BATCH_SIZE", 1000), Env.longValue("IMPORT_MAX_ROWS", 100000));
     }
 
     public void handleRoot(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<Doctor> doctor = authenticate(exchange);
-        if (doctor.isEmpty()) {
-            redirect(exchange, "/login");
-            return;
-        }
-        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Doctor doctor = currentDoctor(exchange);
+        Map<String, String> query = RequestContext.of(exchange).query();
         String search = query.getOrDefault("q", "").trim();
         String selected = query.getOrDefault("selected", "").trim();
-        List<Patient> patients = database.getPatientsByDoctor(doctor.get().username());
-        if (!search.isEmpty()) {
-            String term = search.toLowerCase();
-            patients = patients.stream()
-                    .filter(p -> p.name().toLowerCase().contains(term)
-                            || p.email().toLowerCase().contains(term)
-                            || p.phone().toLowerCase().contains(term))
-                    .toList();
-        }
+        String cursor = query.getOrDefault("cursor", "").trim();
+        Page<Patient> page = search.isEmpty()
+                ? database.getPatientsByDoctor(doctor.username(), cursor, pageLimit(query))
+                : database.searchPatients(doctor.username(), search, cursor, pageLimit(query));
+        List<Patient> patients = page.items();
+        String nextCursor = page.nextCursor();
         Optional<Patient> selectedPatient = Optional.empty();
         if (!selected.isEmpty()) {
             try {
                 UUID selId = UUID.fromString(selected);
                 selectedPatient = patients.stream().filter(p -> p.id().equals(selId)).findFirst();
+                if (selectedPatient.isEmpty()) {
+                    selectedPatient = database.getPatient(selId).filter(p -> doctor.username().equals(p.doctorUsername()));
+                }
             } catch (IllegalArgumentException ignored) { }
         }
         if (selectedPatient.isEmpty() && !patients.isEmpty()) {
             selectedPatient = Optional.of(patients.get(0));
         }
-        List<DiagnosisSession> history = selectedPatient.map(p -> database.getDiagnosisSessions(p.id())).orElse(List.of());
-        String response = HtmlTemplates.dashboard(doctor.get(), patients, null, search, selectedPatient, history);
-        writeResponse(exchange, 200, response);
+        List<DiagnosisSession> history = selectedPatient
+                .map(p -> database.getDiagnosisSessions(List.of(p.id())).getOrDefault(p.id(), List.of()))
+                .orElse(List.of());
+        writeHtml(exchange, 200, HtmlTemplates.dashboard(doctor, patients, null, search, selectedPatient, history, cursor, nextCursor));
     }
 
     public void handleSignup(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
         if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 200, HtmlTemplates.signup(null));
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
+            writeHtml(exchange, 200, HtmlTemplates.signup(null));
             return;
         }
-        Map<String, String> form = parseForm(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String username = form.getOrDefault("username", "").trim();
         String name = form.getOrDefault("name", "").trim();
         String password = form.getOrDefault("password", "").trim();
         String qualifications = form.getOrDefault("qualifications", "").trim();
         if (username.isEmpty() || name.isEmpty() || password.isEmpty() || qualifications.isEmpty()) {
-            writeResponse(exchange, 400, HtmlTemplates.signup("Username, name, password, and qualifications are required."));
+            writeHtml(exchange, 400, HtmlTemplates.signup("Username, name, password, and qualifications are required."));
             return;
         }
         if (database.getDoctor(username).isPresent()) {
-            writeResponse(exchange, 400, HtmlTemplates.signup("Username already exists."));
+            writeHtml(exchange, 400, HtmlTemplates.signup("Username already exists."));
             return;
         }
         Doctor doctor = new Doctor(username, name, PasswordHasher.hash(password), qualifications);
         database.saveDoctor(doctor);
-        System.out.println("Doctor registered: " + name + " (" + username + ")");
+        principals.invalidate(username);
+        Log.info("doctor.registered", "doctor", username, "name", name);
         redirect(exchange, "/login");
     }
 
     public void handleLogin(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
         if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 200, HtmlTemplates.login(null));
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
+            writeHtml(exchange, 200, HtmlTemplates.login(null));
             return;
         }
-        Map<String, String> form = parseForm(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String username = form.getOrDefault("username", "").trim();
         String password = form.getOrDefault("password", "").trim();
         Optional<Doctor> doctor = database.getDoctor(username);
         if (doctor.isEmpty() || !doctor.get().passwordHash().equals(PasswordHasher.hash(password))) {
-            writeResponse(exchange, 401, HtmlTemplates.login("Invalid credentials."));
+            writeHtml(exchange, 401, HtmlTemplates.login("Invalid credentials."));
             return;
         }
-        String sessionId = UUID.randomUUID().toString();
-        sessions.put(sessionId, username);
+        principals.put(doctor.get());
+        String sessionId = sessions.create(username);
         Headers headers = exchange.getResponseHeaders();
         headers.add("Set-Cookie", "SESSION=" + sessionId + "; Path=/; HttpOnly");
         redirect(exchange, "/");
     }
 
     public void handleLogout(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
         Optional<String> sessionId = readSessionId(exchange);
-        sessionId.ifPresent(sessions::remove);
+        sessionId.ifPresent(sessions::invalidate);
         Headers headers = exchange.getResponseHeaders();
         headers.add("Set-Cookie", "SESSION=; Path=/; Max-Age=0");
         redirect(exchange, "/login");
     }
 
     public void handlePatients(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<Doctor> doctor = authenticate(exchange);
-        if (doctor.isEmpty()) {
-            redirect(exchange, "/login");
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
-        Map<String, String> form = parseForm(exchange);
+        Doctor doctor = currentDoctor(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String name = form.getOrDefault("name", "").trim();
         String email = form.getOrDefault("email", "").trim();
         String notes = form.getOrDefault("notes", "").trim();
@@ -167,27 +173,49 @@ public class AppServer {
         String gender = form.getOrDefault("gender", "").trim();
         Integer age = parseAge(ageRaw);
         if (name.isEmpty() || email.isEmpty() || phone.isEmpty() || address.isEmpty() || age == null || gender.isEmpty()) {
-            writeResponse(exchange, 400, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient name, email, phone, address, age, and gender are required.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 400, dashboardWithError(doctor, "Patient name, email, phone, address, age, and gender are required."));
             return;
         }
-        Patient patient = new Patient(UUID.randomUUID(), name, email, phone, age, gender, address, notes, doctor.get().username(), "pending");
+        Patient patient = new Patient(UUID.randomUUID(), name, email, phone, age, gender, address, notes, doctor.username(), "pending");
         database.savePatient(patient);
-        System.out.println("Patient created by " + doctor.get().name() + ": " + name + " (" + email + ")");
+        Log.info("patient.created", "doctor", doctor.username(), "patient", patient.id());
         redirect(exchange, "/?selected=" + patient.id());
     }
 
-    public void handlePatientUpdate(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<Doctor> doctor = authenticate(exchange);
-        if (doctor.isEmpty()) {
-            redirect(exchange, "/login");
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
+    public void handlePatientImport(HttpExchange exchange) throws IOException {
+        Doctor doctor = currentDoctor(exchange);
+        PatientImport.Format format = PatientImport.formatOf(exchange.getRequestHeaders().getFirst("Content-Type"),
+                RequestContext.of(exchange).query("format"));
+        if (format == null) {
+            writeJson(exchange, 415, "{\"ok\":false,\"error\":\"unsupported_format\"}");
+            return;
+        }
+        long start = System.nanoTime();
+        PatientImport.Result result;
+        try (InputStream body = exchange.getRequestBody()) {
+            result = patientImport.run(body, format, doctor.username());
+        }
+        Log.info("patient.imported", "doctor", doctor.username(), "format", format, "imported", result.imported(),
+                "failed", result.failed(), "truncated", result.truncated(), "aborted", result.aborted(),
+                "ms", (System.nanoTime() - start) / 1_000_000);
+        try (JsonWriter json = JsonWriter.open(openStream(exchange, 200, "application/json; charset=utf-8"))) {
+            json.beginObject()
+                    .field("ok", !result.aborted())
+                    .field("imported", result.imported())
+                    .field("failed", result.failed())
+                    .field("truncated", result.truncated())
+                    .field("aborted", result.aborted());
+            json.name("errors").beginArray();
+            for (PatientImport.RowError error : result.errors()) {
+                json.beginObject().field("line", error.line()).field("error", error.error()).endObject();
+            }
+            json.endArray().endObject();
         }
-        Map<String, String> form = parseForm(exchange);
+    }
+
+    public void handlePatientUpdate(HttpExchange exchange) throws IOException {
+        Doctor doctor = currentDoctor(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String patientIdRaw = form.getOrDefault("patientId", "").trim();
         String name = form.getOrDefault("name", "").trim();
         String email = form.getOrDefault("email", "").trim();
@@ -198,17 +226,17 @@ public class AppServer {
         String gender = form.getOrDefault("gender", "").trim();
         Integer age = parseAge(ageRaw);
         if (patientIdRaw.isEmpty() || name.isEmpty() || email.isEmpty() || phone.isEmpty() || address.isEmpty() || age == null || gender.isEmpty()) {
-            writeResponse(exchange, 400, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "All fields are required to update patient.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 400, dashboardWithError(doctor, "All fields are required to update patient."));
             return;
         }
         UUID patientId = UUID.fromString(patientIdRaw);
         Optional<Patient> existing = database.getPatient(patientId);
         if (existing.isEmpty()) {
-            writeResponse(exchange, 404, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient not found.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 404, dashboardWithError(doctor, "Patient not found."));
             return;
         }
-        if (!doctor.get().username().equals(existing.get().doctorUsername())) {
-            writeResponse(exchange, 403, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "You cannot edit patients assigned to another doctor.", "", Optional.empty(), List.of()));
+        if (!doctor.username().equals(existing.get().doctorUsername())) {
+            writeHtml(exchange, 403, dashboardWithError(doctor, "You cannot edit patients assigned to another doctor."));
             return;
         }
         Patient updated = new Patient(patientId, name, email, phone, age, gender, address, notes, existing.get().doctorUsername(), existing.get().deliveryStatus());
@@ -217,30 +245,21 @@ public class AppServer {
     }
 
     public void handlePatientDelete(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<Doctor> doctor = authenticate(exchange);
-        if (doctor.isEmpty()) {
-            redirect(exchange, "/login");
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
-        Map<String, String> form = parseForm(exchange);
+        Doctor doctor = currentDoctor(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String patientIdRaw = form.getOrDefault("patientId", "").trim();
         if (patientIdRaw.isEmpty()) {
-            writeResponse(exchange, 400, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient id is required to delete.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 400, dashboardWithError(doctor, "Patient id is required to delete."));
             return;
         }
         UUID patientId = UUID.fromString(patientIdRaw);
         Optional<Patient> existing = database.getPatient(patientId);
         if (existing.isEmpty()) {
-            writeResponse(exchange, 404, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient not found.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 404, dashboardWithError(doctor, "Patient not found."));
             return;
         }
-        if (!doctor.get().username().equals(existing.get().doctorUsername())) {
-            writeResponse(exchange, 403, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "You cannot delete patients assigned to another doctor.", "", Optional.empty(), List.of()));
+        if (!doctor.username().equals(existing.get().doctorUsername())) {
+            writeHtml(exchange, 403, dashboardWithError(doctor, "You cannot delete patients assigned to another doctor."));
             return;
         }
         database.deletePatient(patientId);
@@ -248,96 +267,69 @@ public class AppServer {
     }
 
     public void handleSessionSave(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<Doctor> doctor = authenticate(exchange);
-        if (doctor.isEmpty()) {
-            redirect(exchange, "/login");
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
-        Map<String, String> form = parseForm(exchange);
+        Doctor doctor = currentDoctor(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String patientIdRaw = form.getOrDefault("patientId", "");
         String diagnosis = form.getOrDefault("diagnosis", "").trim();
         String medicationPlan = form.getOrDefault("medicationPlan", "").trim();
         String medication = form.getOrDefault("medication", "").trim();
         if (patientIdRaw.isEmpty() || diagnosis.isEmpty() || (medicationPlan.isEmpty() && medication.isEmpty())) {
-            writeResponse(exchange, 400, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient, diagnosis, and medication plan are required.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 400, dashboardWithError(doctor, "Patient, diagnosis, and medication plan are required."));
             return;
         }
         UUID patientId = UUID.fromString(patientIdRaw);
         Optional<Patient> patientOpt = database.getPatient(patientId);
         if (patientOpt.isEmpty()) {
-            writeResponse(exchange, 404, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient not found.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 404, dashboardWithError(doctor, "Patient not found."));
             return;
         }
-        if (!doctor.get().username().equals(patientOpt.get().doctorUsername())) {
-            writeResponse(exchange, 403, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "You cannot save diagnosis for another doctor's patient.", "", Optional.empty(), List.of()));
+        if (!doctor.username().equals(patientOpt.get().doctorUsername())) {
+            writeHtml(exchange, 403, dashboardWithError(doctor, "You cannot save diagnosis for another doctor's patient."));
             return;
         }
         String plan = medicationPlan.isEmpty() ? medication : medicationPlan;
         database.saveDiagnosisSession(new DiagnosisSession(UUID.randomUUID(), patientId, diagnosis, plan, LocalDateTime.now()));
-        System.out.println("Diagnosis session saved for patient " + patientId + " by " + doctor.get().name());
+        Log.info("diagnosis.saved", "doctor", doctor.username(), "patient", patientId);
         redirect(exchange, "/?selected=" + patientId);
     }
 
     public void handlePrescriptions(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<Doctor> doctor = authenticate(exchange);
-        if (doctor.isEmpty()) {
-            redirect(exchange, "/login");
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
-        Map<String, String> form = parseForm(exchange);
+        Doctor doctor = currentDoctor(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String patientIdRaw = form.getOrDefault("patientId", "");
         String diagnosis = form.getOrDefault("diagnosis", "").trim();
         String medicationPlan = form.getOrDefault("medicationPlan", "").trim();
         String medication = form.getOrDefault("medication", "").trim();
         if (patientIdRaw.isEmpty() || (medicationPlan.isEmpty() && medication.isEmpty())) {
-            writeResponse(exchange, 400, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient and medication plan are required.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 400, dashboardWithError(doctor, "Patient and medication plan are required."));
             return;
         }
         UUID patientId = UUID.fromString(patientIdRaw);
         Optional<Patient> patientOpt = database.getPatient(patientId);
         if (patientOpt.isEmpty()) {
-            writeResponse(exchange, 404, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "Patient not found.", "", Optional.empty(), List.of()));
+            writeHtml(exchange, 404, dashboardWithError(doctor, "Patient not found."));
             return;
         }
-        if (!doctor.get().username().equals(patientOpt.get().doctorUsername())) {
-            writeResponse(exchange, 403, HtmlTemplates.dashboard(doctor.get(), database.getPatientsByDoctor(doctor.get().username()), "You cannot send prescriptions for another doctor's patient.", "", Optional.empty(), List.of()));
+        if (!doctor.username().equals(patientOpt.get().doctorUsername())) {
+            writeHtml(exchange, 403, dashboardWithError(doctor, "You cannot send prescriptions for another doctor's patient."));
             return;
         }
         Patient patient = patientOpt.get();
         String subject = "Prescription for " + patient.name();
         String plan = medicationPlan.isEmpty() ? medication : medicationPlan;
-        String body = "Prescribed by: Dr. " + doctor.get().name() + " (" + doctor.get().qualifications() + ")\n"
+        String body = "Prescribed by: Dr. " + doctor.name() + " (" + doctor.qualifications() + ")\n"
                 + "Diagnosis: " + (diagnosis.isEmpty() ? "N/A" : diagnosis)
                 + "\nPlan:\n" + plan
                 + "\nPrescribed at: " + LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-        emailService.sendEmail(patient.email(), subject, body);
-        System.out.println("Prescription sent to " + patient.email() + " plan:\n" + plan);
-        database.saveDiagnosisSession(new DiagnosisSession(UUID.randomUUID(), patient.id(), diagnosis, plan, LocalDateTime.now()));
+        database.savePrescription(new DiagnosisSession(UUID.randomUUID(), patient.id(), diagnosis, plan, LocalDateTime.now()),
+                new OutboxEmail(UUID.randomUUID(), patient.email(), subject, body, 0, LocalDateTime.now()));
+        outbox.wake();
+        Log.info("prescription.queued", "doctor", doctor.username(), "patient", patient.id());
         redirect(exchange, "/?selected=" + patient.id());
     }
 
     public void handleMedicationNlp(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<Doctor> doctor = authenticate(exchange);
-        if (doctor.isEmpty()) {
-            writeJson(exchange, 401, "{\"ok\":false,\"error\":\"unauthorized\"}");
-            return;
-        }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeJson(exchange, 405, "{\"ok\":false,\"error\":\"method_not_allowed\"}");
-            return;
-        }
-        Map<String, String> form = parseForm(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String transcript = form.getOrDefault("transcript", "").trim();
         if (transcript.isEmpty()) {
             writeJson(exchange, 400, "{\"ok\":false,\"error\":\"empty_transcript\"}");
@@ -356,130 +348,69 @@ public class AppServer {
     }
 
     public void handleAdminLogin(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
         if ("GET".equalsIgnoreCase(exchange.getRequestMethod())) {
             serveAdminIndex(exchange);
             return;
         }
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
-        Map<String, String> form = parseForm(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String username = form.getOrDefault("username", "").trim();
         String password = form.getOrDefault("password", "").trim();
         if (!adminUser.equals(username) || !adminPass.equals(password)) {
-            writeResponse(exchange, 401, HtmlTemplates.adminLogin("Invalid credentials."));
+            writeHtml(exchange, 401, HtmlTemplates.adminLogin("Invalid credentials."));
             return;
         }
-        String sessionId = UUID.randomUUID().toString();
-        adminSessions.put(sessionId, username);
+        String sessionId = adminSessions.create(username);
         Headers headers = exchange.getResponseHeaders();
         headers.add("Set-Cookie", "ADMIN_SESSION=" + sessionId + "; Path=/; HttpOnly");
         redirect(exchange, "/admin");
     }
 
     public void handleAdminApiLogin(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeJson(exchange, 405, "{\"ok\":false,\"error\":\"method_not_allowed\"}");
-            return;
-        }
-        Map<String, String> form = parseForm(exchange);
+        Map<String, String> form = RequestContext.of(exchange).form();
         String username = form.getOrDefault("username", "").trim();
         String password = form.getOrDefault("password", "").trim();
         if (!adminUser.equals(username) || !adminPass.equals(password)) {
             writeJson(exchange, 401, "{\"ok\":false,\"error\":\"invalid_credentials\"}");
             return;
         }
-        String sessionId = UUID.randomUUID().toString();
-        adminSessions.put(sessionId, username);
+        String sessionId = adminSessions.create(username);
         Headers headers = exchange.getResponseHeaders();
         headers.add("Set-Cookie", "ADMIN_SESSION=" + sessionId + "; Path=/; HttpOnly");
         writeJson(exchange, 200, "{\"ok\":true}");
     }
 
     public void handleAdminApiLogout(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        if (!"POST".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeJson(exchange, 405, "{\"ok\":false,\"error\":\"method_not_allowed\"}");
-            return;
-        }
         Optional<String> sessionId = readAdminSessionId(exchange);
-        sessionId.ifPresent(adminSessions::remove);
+        sessionId.ifPresent(adminSessions::invalidate);
         Headers headers = exchange.getResponseHeaders();
         headers.add("Set-Cookie", "ADMIN_SESSION=; Path=/; Max-Age=0");
         writeJson(exchange, 200, "{\"ok\":true}");
     }
 
-    public void handleAdminAssets(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
+    public void handleStaticAssets(HttpExchange exchange) throws IOException {
         String path = exchange.getRequestURI().getPath();
-        Path root = adminUiRoot();
-        Path target = root.resolve(path.substring(1)).normalize();
-        if (!target.startsWith(root)) {
-            writeResponse(exchange, 403, "Forbidden");
-            return;
-        }
-        if (!Files.exists(target) || Files.isDirectory(target)) {
+        if (!staticAssets.serve(exchange, path.substring(1))) {
             writeResponse(exchange, 404, "Not Found");
-            return;
-        }
-        byte[] bytes = Files.readAllBytes(target);
-        Headers headers = exchange.getResponseHeaders();
-        headers.set("Content-Type", contentTypeFor(target));
-        exchange.sendResponseHeaders(200, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
         }
     }
 
     public void handleAdminLogout(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
         Optional<String> sessionId = readAdminSessionId(exchange);
-        sessionId.ifPresent(adminSessions::remove);
+        sessionId.ifPresent(adminSessions::invalidate);
         Headers headers = exchange.getResponseHeaders();
         headers.add("Set-Cookie", "ADMIN_SESSION=; Path=/; Max-Age=0");
         redirect(exchange, "/admin/login");
     }
 
     public void handleAdminDashboard(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<String> admin = authenticateAdmin(exchange);
-        if (admin.isEmpty()) {
-            redirect(exchange, "/admin/login");
-            return;
-        }
-        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
         serveAdminIndex(exchange);
     }
 
     public void handleAdminDashboardData(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        Optional<String> admin = authenticateAdmin(exchange);
-        if (admin.isEmpty()) {
-            writeJson(exchange, 401, "{\"ok\":false,\"error\":\"unauthorized\"}");
-            return;
-        }
-        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeJson(exchange, 405, "{\"ok\":false,\"error\":\"method_not_allowed\"}");
-            return;
-        }
-        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Map<String, String> query = RequestContext.of(exchange).query();
         String selectedDoctor = query.getOrDefault("doctor", "").trim();
         List<Doctor> doctors = database.getDoctors();
-        List<Patient> allPatients = database.getPatients();
-        Map<String, Long> patientCounts = allPatients.stream()
-                .collect(Collectors.groupingBy(Patient::doctorUsername, Collectors.counting()));
-        int totalPatients = allPatients.size();
-        long activeDoctors = patientCounts.values().stream().filter(count -> count != null && count > 0).count();
+        StatisticsDatabase.Summary summary = statistics.summary();
         Optional<Doctor> selected = Optional.empty();
         if (!selectedDoctor.isEmpty()) {
             selected = doctors.stream().filter(d -> d.username().equals(selectedDoctor)).findFirst();
@@ -487,95 +418,88 @@ public class AppServer {
         if (selected.isEmpty() && !doctors.isEmpty()) {
             selected = Optional.of(doctors.get(0));
         }
-        List<Patient> patients = selected.map(d -> database.getPatientsByDoctor(d.username())).orElse(List.of());
+        String cursor = query.getOrDefault("cursor", "").trim();
+        int limit = pageLimit(query);
+        Page<Patient> page = selected.map(d -> database.getPatientsByDoctor(d.username(), cursor, limit))
+                .orElse(new Page<>(List.of(), null));
+        List<Patient> patients = page.items();
+        List<UUID> patientIds = patients.stream().map(Patient::id).toList();
+        Map<UUID, List<DiagnosisSession>> history = database.getDiagnosisSessions(patientIds);
+        Map<UUID, String> tokens = deliveryTokens.mintAll(patientIds);
         String baseUrl = resolvePublicBaseUrl(exchange);
-        String response = buildAdminDashboardJson(doctors, selected, patients, patientCounts, totalPatients, activeDoctors, baseUrl);
-        writeJson(exchange, 200, response);
-    }
-
-    private String buildAdminDashboardJson(List<Doctor> doctors, Optional<Doctor> selected, List<Patient> patients,
-                                           Map<String, Long> patientCounts, int totalPatients, long activeDoctors,
-                                           String baseUrl) {
-        StringBuilder sb = new StringBuilder();
-        sb.append("{\"ok\":true,");
-        sb.append("\"summary\":{");
-        sb.append("\"totalDoctors\":").append(doctors.size()).append(",");
-        sb.append("\"activeDoctors\":").append(activeDoctors).append(",");
-        sb.append("\"totalPatients\":").append(totalPatients);
-        sb.append("},");
-        sb.append("\"doctors\":[");
-        for (int i = 0; i < doctors.size(); i++) {
-            Doctor doctor = doctors.get(i);
-            long doctorPatients = patientCounts.getOrDefault(doctor.username(), 0L);
-            String status = doctorPatients > 0 ? "Active" : "Idle";
-            if (i > 0) {
-                sb.append(",");
-            }
-            sb.append("{")
-                    .append("\"username\":\"").append(jsonEscape(doctor.username())).append("\",")
-                    .append("\"name\":\"").append(jsonEscape(doctor.name())).append("\",")
-                    .append("\"qualifications\":\"").append(jsonEscape(doctor.qualifications())).append("\",")
-                    .append("\"patients\":").append(doctorPatients).append(",")
-                    .append("\"status\":\"").append(status).append("\"")
-                    .append("}");
-        }
-        sb.append("],");
-        sb.append("\"selectedDoctor\":");
+        try (JsonWriter json = JsonWriter.open(openStream(exchange, 200, "application/json; charset=utf-8"))) {
+            writeAdminDashboardJson(json, doctors, selected, page, history, tokens, summary, baseUrl);
+        }
+    }
+
+    private void writeAdminDashboardJson(JsonWriter json, List<Doctor> doctors, Optional<Doctor> selected, Page<Patient> page,
+                                         Map<UUID, List<DiagnosisSession>> history, Map<UUID, String> tokens,
+                                         StatisticsDatabase.Summary summary, String baseUrl) throws IOException {
+        json.beginObject().field("ok", true);
+        json.name("summary").beginObject()
+                .field("totalDoctors", doctors.size())
+                .field("activeDoctors", summary.activeDoctors())
+                .field("totalPatients", summary.totalPatients())
+                .field("totalSessions", summary.totalSessions());
+        json.name("deliveryStatuses").beginObject();
+        for (Map.Entry<String, Long> status : summary.deliveryStatuses().entrySet()) {
+            json.field(status.getKey(), status.getValue());
+        }
+        json.endObject().endObject();
+        json.name("doctors").beginArray();
+        for (Doctor doctor : doctors) {
+            long doctorPatients = summary.patientsByDoctor().getOrDefault(doctor.username(), 0L);
+            json.beginObject()
+                    .field("username", valueOrEmpty(doctor.username()))
+                    .field("name", valueOrEmpty(doctor.name()))
+                    .field("qualifications", valueOrEmpty(doctor.qualifications()))
+                    .field("patients", doctorPatients)
+                    .field("sessions", summary.sessionsByDoctor().getOrDefault(doctor.username(), 0L))
+                    .field("status", doctorPatients > 0 ? "Active" : "Idle")
+                    .endObject();
+        }
+        json.endArray();
+        json.name("selectedDoctor");
         if (selected.isEmpty()) {
-            sb.append("null");
+            json.nullValue();
         } else {
             Doctor doctor = selected.get();
-            sb.append("{")
-                    .append("\"username\":\"").append(jsonEscape(doctor.username())).append("\",")
-                    .append("\"name\":\"").append(jsonEscape(doctor.name())).append("\",")
-                    .append("\"qualifications\":\"").append(jsonEscape(doctor.qualifications())).append("\"")
-                    .append("}");
-        }
-        sb.append(",");
-        sb.append("\"patients\":[");
-        for (int i = 0; i < patients.size(); i++) {
-            Patient patient = patients.get(i);
-            if (i > 0) {
-                sb.append(",");
-            }
-            String deliveryMessage = buildDeliveryMessage(baseUrl, patient.id());
-            sb.append("{")
-                    .append("\"id\":\"").append(patient.id()).append("\",")
-                    .append("\"name\":\"").append(jsonEscape(patient.name())).append("\",")
-                    .append("\"email\":\"").append(jsonEscape(patient.email())).append("\",")
-                    .append("\"phone\":\"").append(jsonEscape(patient.phone())).append("\",")
-                    .append("\"age\":").append(patient.age() == null ? "null" : patient.age()).append(",")
-                    .append("\"gender\":\"").append(jsonEscape(valueOrEmpty(patient.gender()))).append("\",")
-                    .append("\"address\":\"").append(jsonEscape(valueOrEmpty(patient.address()))).append("\",")
-                    .append("\"notes\":\"").append(jsonEscape(valueOrEmpty(patient.notes()))).append("\",")
-                    .append("\"deliveryStatus\":\"").append(jsonEscape(valueOrEmpty(patient.deliveryStatus()))).append("\",")
-                    .append("\"deliveryMessage\":\"").append(jsonEscape(deliveryMessage)).append("\",")
-                    .append("\"history\":[");
-            List<DiagnosisSession> history = database.getDiagnosisSessions(patient.id());
-            for (int j = 0; j < history.size(); j++) {
-                DiagnosisSession session = history.get(j);
-                if (j > 0) {
-                    sb.append(",");
-                }
-                sb.append("{")
-                        .append("\"createdAt\":\"").append(jsonEscape(session.createdAt().toString())).append("\",")
-                        .append("\"diagnosis\":\"").append(jsonEscape(session.diagnosis())).append("\",")
-                        .append("\"plan\":\"").append(jsonEscape(session.plan())).append("\"")
-                        .append("}");
+            json.beginObject()
+                    .field("username", valueOrEmpty(doctor.username()))
+                    .field("name", valueOrEmpty(doctor.name()))
+                    .field("qualifications", valueOrEmpty(doctor.qualifications()))
+                    .endObject();
+        }
+        json.name("patients").beginArray();
+        for (Patient patient : page.items()) {
+            json.beginObject()
+                    .field("id", patient.id().toString())
+                    .field("name", valueOrEmpty(patient.name()))
+                    .field("email", valueOrEmpty(patient.email()))
+                    .field("phone", valueOrEmpty(patient.phone()))
+                    .field("age", patient.age())
+                    .field("gender", valueOrEmpty(patient.gender()))
+                    .field("address", valueOrEmpty(patient.address()))
+                    .field("notes", valueOrEmpty(patient.notes()))
+                    .field("deliveryStatus", valueOrEmpty(patient.deliveryStatus()))
+                    .field("deliveryMessage", buildDeliveryMessage(baseUrl, patient.id(), tokens.get(patient.id())));
+            json.name("history").beginArray();
+            for (DiagnosisSession session : history.getOrDefault(patient.id(), List.of())) {
+                json.beginObject()
+                        .field("createdAt", session.createdAt().toString())
+                        .field("diagnosis", valueOrEmpty(session.diagnosis()))
+                        .field("plan", valueOrEmpty(session.plan()))
+                        .endObject();
             }
-            sb.append("]}");
+            json.endArray().endObject();
         }
-        sb.append("]}");
-        return sb.toString();
+        json.endArray();
+        json.field("nextCursor", page.nextCursor());
+        json.endObject();
     }
 
     public void handleDeliveryConfirm(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
-        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Map<String, String> query = RequestContext.of(exchange).query();
         String patientIdRaw = query.getOrDefault("patient", "").trim();
         String token = query.getOrDefault("token", "").trim();
         if (patientIdRaw.isEmpty() || token.isEmpty()) {
@@ -589,7 +513,7 @@ public class AppServer {
             writeResponse(exchange, 400, layoutMessage("Invalid response link."));
             return;
         }
-        if (!isValidDeliveryToken(patientId, token)) {
+        if (!deliveryTokens.verify(patientId, token)) {
             writeResponse(exchange, 403, layoutMessage("This response link is not valid."));
             return;
         }
@@ -599,12 +523,7 @@ public class AppServer {
     }
 
     public void handleDeliveryResponse(HttpExchange exchange) throws IOException {
-        logRequest(exchange);
-        if (!"GET".equalsIgnoreCase(exchange.getRequestMethod())) {
-            writeResponse(exchange, 405, "Method Not Allowed");
-            return;
-        }
-        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        Map<String, String> query = RequestContext.of(exchange).query();
         String patientIdRaw = query.getOrDefault("patient", "").trim();
         String choiceRaw = query.getOrDefault("choice", "").trim().toLowerCase();
         String token = query.getOrDefault("token", "").trim();
@@ -619,7 +538,7 @@ public class AppServer {
             writeResponse(exchange, 400, layoutMessage("Invalid response link."));
             return;
         }
-        if (!isValidDeliveryToken(patientId, token)) {
+        if (!deliveryTokens.verify(patientId, token)) {
             writeResponse(exchange, 403, layoutMessage("This response link is not valid."));
             return;
         }
@@ -646,90 +565,174 @@ public class AppServer {
         writeResponse(exchange, 200, layoutMessage(message));
     }
 
-    private Optional<Doctor> authenticate(HttpExchange exchange) {
-        Optional<String> sessionId = readSessionId(exchange);
-        if (sessionId.isEmpty()) {
-            return Optional.empty();
-        }
-        String username = sessions.get(sessionId.get());
-        if (username == null) {
-            return Optional.empty();
+    public void handleMetrics(HttpExchange exchange) throws IOException {
+        if (!isMetricsAuthorized(exchange)) {
+            writeResponse(exchange, 401, "Unauthorized");
+            return;
         }
-        return database.getDoctor(username);
+        writeBytes(exchange, 200, "text/plain; version=0.0.4; charset=utf-8", metrics.render().getBytes(StandardCharsets.UTF_8));
     }
 
-    private Optional<String> authenticateAdmin(HttpExchange exchange) {
-        Optional<String> sessionId = readAdminSessionId(exchange);
-        if (sessionId.isEmpty()) {
-            return Optional.empty();
+    private boolean isMetricsAuthorized(HttpExchange exchange) {
+        if (authenticateAdmin(exchange).isPresent()) {
+            return true;
         }
-        String username = adminSessions.get(sessionId.get());
-        if (username == null) {
-            return Optional.empty();
+        if (metricsToken == null || metricsToken.isBlank()) {
+            return false;
+        }
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return false;
         }
-        return Optional.of(username);
+        byte[] presented = header.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(metricsToken.getBytes(StandardCharsets.UTF_8), presented);
     }
 
-    private Optional<String> readSessionId(HttpExchange exchange) {
-        List<String> cookies = exchange.getRequestHeaders().get("Cookie");
-        if (cookies == null) {
-            return Optional.empty();
-        }
-        for (String cookieHeader : cookies) {
-            String[] parts = cookieHeader.split(";\\s*");
-            for (String part : parts) {
-                if (part.startsWith("SESSION=")) {
-                    return Optional.of(part.substring("SESSION=".length()));
-                }
-            }
+    public void handleNotFound(HttpExchange exchange) throws IOException {
+        if (wantsJson(exchange)) {
+            writeJson(exchange, 404, "{\"ok\":false,\"error\":\"not_found\"}");
+            return;
         }
-        return Optional.empty();
+        writeResponse(exchange, 404, "Not Found");
     }
 
-    private Optional<String> readAdminSessionId(HttpExchange exchange) {
-        List<String> cookies = exchange.getRequestHeaders().get("Cookie");
-        if (cookies == null) {
-            return Optional.empty();
+    public void handleMethodNotAllowed(HttpExchange exchange) throws IOException {
+        if (wantsJson(exchange)) {
+            writeJson(exchange, 405, "{\"ok\":false,\"error\":\"method_not_allowed\"}");
+            return;
         }
-        for (String cookieHeader : cookies) {
-            String[] parts = cookieHeader.split(";\\s*");
-            for (String part : parts) {
-                if (part.startsWith("ADMIN_SESSION=")) {
-                    return Optional.of(part.substring("ADMIN_SESSION=".length()));
-                }
+        writeResponse(exchange, 405, "Method Not Allowed");
+    }
+
+    public Middleware requireDoctor() {
+        return (exchange, next) -> {
+            Optional<Doctor> doctor = authenticate(exchange);
+            if (doctor.isEmpty()) {
+                redirect(exchange, "/login");
+                return;
             }
-        }
-        return Optional.empty();
+            exchange.setAttribute(DOCTOR_ATTRIBUTE, doctor.get());
+            next.handle(exchange);
+        };
+    }
+
+    public Middleware requireDoctorApi() {
+        return (exchange, next) -> {
+            Optional<Doctor> doctor = authenticate(exchange);
+            if (doctor.isEmpty()) {
+                writeJson(exchange, 401, "{\"ok\":false,\"error\":\"unauthorized\"}");
+                return;
+            }
+            exchange.setAttribute(DOCTOR_ATTRIBUTE, doctor.get());
+            next.handle(exchange);
+        };
     }
 
-    private Map<String, String> parseForm(HttpExchange exchange) throws IOException {
-        String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
-        Map<String, String> form = new HashMap<>();
-        for (String pair : body.split("&")) {
-            if (pair.isEmpty()) {
-                continue;
+    public Middleware requireAdmin() {
+        return (exchange, next) -> {
+            if (authenticateAdmin(exchange).isEmpty()) {
+                redirect(exchange, "/admin/login");
+                return;
             }
-            String[] kv = pair.split("=", 2);
-            String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
-            String value = kv.length > 1 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "";
-            form.put(key, value);
+            next.handle(exchange);
+        };
+    }
+
+    public Middleware requireAdminApi() {
+        return (exchange, next) -> {
+            if (authenticateAdmin(exchange).isEmpty()) {
+                writeJson(exchange, 401, "{\"ok\":false,\"error\":\"unauthorized\"}");
+                return;
+            }
+            next.handle(exchange);
+        };
+    }
+
+    public Middleware accessLog() {
+        return (exchange, next) -> {
+            long start = System.nanoTime();
+            try {
+                next.handle(exchange);
+            } finally {
+                logRequest(exchange, System.nanoTime() - start);
+            }
+        };
+    }
+
+    public Middleware errorMapping() {
+        return (exchange, next) -> {
+            try {
+                next.handle(exchange);
+            } catch (IllegalArgumentException e) {
+                failRequest(exchange, 400, "bad_request", "Bad Request", e);
+            } catch (PayloadTooLargeException e) {
+                exchange.getResponseHeaders().set("Connection", "close");
+                failRequest(exchange, 413, "payload_too_large", "Payload Too Large", e);
+            } catch (OverloadedException e) {
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(e.retryAfterSeconds()));
+                failRequest(exchange, 503, "overloaded", "Service Unavailable", e);
+            } catch (RuntimeException e) {
+                failRequest(exchange, 500, "internal_error", "Internal Server Error", e);
+            }
+        };
+    }
+
+    private void failRequest(HttpExchange exchange, int status, String code, String message, RuntimeException e) throws IOException {
+        if (status >= 500 && status != 503) {
+            Log.error("request.failed", e, "method", exchange.getRequestMethod(), "route", Router.routeOf(exchange), "status", status);
+        } else {
+            Log.warn("request.rejected", "method", exchange.getRequestMethod(), "route", Router.routeOf(exchange), "status", status, "reason", e.getMessage());
+        }
+        if (exchange.getResponseCode() != -1) {
+            exchange.close();
+            return;
+        }
+        if (wantsJson(exchange)) {
+            writeJson(exchange, status, "{\"ok\":false,\"error\":\"" + code + "\"}");
+            return;
+        }
+        writeResponse(exchange, status, message);
+    }
+
+    private boolean wantsJson(HttpExchange exchange) {
+        String path = exchange.getRequestURI().getPath();
+        return path.startsWith("/api/") || path.startsWith("/nlp/");
+    }
+
+    private Doctor currentDoctor(HttpExchange exchange) {
+        Object doctor = exchange.getAttribute(DOCTOR_ATTRIBUTE);
+        if (doctor == null) {
+            throw new IllegalStateException("Route is missing the doctor authentication middleware");
         }
-        return form;
+        return (Doctor) doctor;
     }
 
-    private Map<String, String> parseQuery(String rawQuery) {
-        Map<String, String> query = new HashMap<>();
-        if (rawQuery == null || rawQuery.isEmpty()) {
-            return query;
+    private Optional<Doctor> authenticate(HttpExchange exchange) {
+        Optional<String> sessionId = readSessionId(exchange);
+        if (sessionId.isEmpty()) {
+            return Optional.empty();
+        }
+        Optional<String> username = sessions.resolve(sessionId.get());
+        if (username.isEmpty()) {
+            return Optional.empty();
         }
-        for (String pair : rawQuery.split("&")) {
-            if (pair.isEmpty()) continue;
-            String[] kv = pair.split("=", 2);
-            String key = URLDecoder.decode(kv[0], StandardCharsets.UTF_8);
-            String value = kv.length > 1 ? URLDecoder.decode(kv[1], StandardCharsets.UTF_8) : "";
-            query.put(key, value);
+        return principals.get(username.get(), database::getDoctor);
+    }
+
+    private Optional<String> authenticateAdmin(HttpExchange exchange) {
+        Optional<String> sessionId = readAdminSessionId(exchange);
+        if (sessionId.isEmpty()) {
+            return Optional.empty();
         }
-        return query;
+        return adminSessions.resolve(sessionId.get());
+    }
+
+    private Optional<String> readSessionId(HttpExchange exchange) {
+        return Optional.ofNullable(RequestContext.of(exchange).cookie("SESSION"));
+    }
+
+    private Optional<String> readAdminSessionId(HttpExchange exchange) {
+        return Optional.ofNullable(RequestContext.of(exchange).cookie("ADMIN_SESSION"));
     }
 
     private void redirect(HttpExchange exchange, String location) throws IOException {
@@ -740,41 +743,79 @@ public class AppServer {
     }
 
     private void writeResponse(HttpExchange exchange, int status, String body) throws IOException {
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
-        Headers headers = exchange.getResponseHeaders();
-        headers.set("Content-Type", "text/html; charset=utf-8");
-        exchange.sendResponseHeaders(status, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+        writeBytes(exchange, status, "text/html; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeHtml(HttpExchange exchange, int status, HtmlView view) throws IOException {
+        try (HtmlWriter html = HtmlWriter.open(openStream(exchange, status, "text/html; charset=utf-8"))) {
+            view.render(html);
         }
     }
 
     private void writeJson(HttpExchange exchange, int status, String body) throws IOException {
-        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        writeBytes(exchange, status, "application/json; charset=utf-8", body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void writeBytes(HttpExchange exchange, int status, String contentType, byte[] bytes) throws IOException {
         Headers headers = exchange.getResponseHeaders();
-        headers.set("Content-Type", "application/json; charset=utf-8");
-        exchange.sendResponseHeaders(status, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
+        headers.set("Content-Type", contentType);
+        if (ResponseCompression.isCompressible(contentType)) {
+            headers.set("Vary", "Accept-Encoding");
+        }
+        String encoding = compression.negotiate(exchange, contentType, bytes.length);
+        if (encoding == null) {
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(bytes);
+            }
+            return;
+        }
+        headers.set("Content-Encoding", encoding);
+        exchange.sendResponseHeaders(status, 0);
+        try (OutputStream os = compression.wrap(exchange.getResponseBody(), encoding)) {
             os.write(bytes);
         }
     }
 
-    private void logRequest(HttpExchange exchange) {
-        System.out.println("Request: " + exchange.getRequestMethod() + " " + exchange.getRequestURI());
+    private OutputStream openStream(HttpExchange exchange, int status, String contentType) throws IOException {
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", contentType);
+        if (ResponseCompression.isCompressible(contentType)) {
+            headers.set("Vary", "Accept-Encoding");
+        }
+        String encoding = compression.negotiate(exchange, contentType, Long.MAX_VALUE);
+        if (encoding != null) {
+            headers.set("Content-Encoding", encoding);
+        }
+        exchange.sendResponseHeaders(status, 0);
+        OutputStream body = exchange.getResponseBody();
+        return encoding == null ? body : compression.wrap(body, encoding);
+    }
+
+    private void logRequest(HttpExchange exchange, long elapsedNanos) {
+        Object doctor = exchange.getAttribute(DOCTOR_ATTRIBUTE);
+        Log.info("request",
+                "method", exchange.getRequestMethod(),
+                "path", exchange.getRequestURI().getPath(),
+                "route", Router.routeOf(exchange),
+                "status", exchange.getResponseCode(),
+                "latency_ms", elapsedNanos / 1_000_000.0,
+                "doctor", doctor == null ? "-" : ((Doctor) doctor).username());
     }
 
     private void serveAdminIndex(HttpExchange exchange) throws IOException {
-        Path index = adminUiRoot().resolve("index.html");
-        if (!Files.exists(index)) {
+        if (!staticAssets.serve(exchange, "index.html")) {
             writeResponse(exchange, 200, "Admin UI not built. Run `npm run build` in frontend/.");
-            return;
         }
-        byte[] bytes = Files.readAllBytes(index);
-        Headers headers = exchange.getResponseHeaders();
-        headers.set("Content-Type", "text/html; charset=utf-8");
-        exchange.sendResponseHeaders(200, bytes.length);
-        try (OutputStream os = exchange.getResponseBody()) {
-            os.write(bytes);
+    }
+
+    private void publishPageAssets() {
+        try {
+            for (PageAssets.Asset asset : PageAssets.all()) {
+                staticAssets.publish(asset.path(), asset.bytes());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to publish page assets", e);
         }
     }
 
@@ -782,16 +823,21 @@ public class AppServer {
         return Path.of("frontend", "dist");
     }
 
-    private String contentTypeFor(Path file) {
-        String name = file.getFileName().toString().toLowerCase();
-        if (name.endsWith(".js")) return "text/javascript; charset=utf-8";
-        if (name.endsWith(".css")) return "text/css; charset=utf-8";
-        if (name.endsWith(".svg")) return "image/svg+xml";
-        if (name.endsWith(".png")) return "image/png";
-        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return "image/jpeg";
-        if (name.endsWith(".webp")) return "image/webp";
-        if (name.endsWith(".json")) return "application/json; charset=utf-8";
-        return "application/octet-stream";
+    private HtmlView dashboardWithError(Doctor doctor, String error) {
+        Page<Patient> page = database.getPatientsByDoctor(doctor.username(), null, pageSize);
+        return HtmlTemplates.dashboard(doctor, page.items(), error, "", Optional.empty(), List.of(), "", page.nextCursor());
+    }
+
+    private int pageLimit(Map<String, String> query) {
+        String raw = query.getOrDefault("limit", "").trim();
+        if (raw.isEmpty()) {
+            return pageSize;
+        }
+        try {
+            return Math.max(1, Math.min(MAX_PAGE_SIZE, Integer.parseInt(raw)));
+        } catch (NumberFormatException e) {
+            return pageSize;
+        }
     }
 
     private Integer parseAge(String raw) {
@@ -822,8 +868,7 @@ public class AppServer {
         return proto + "://" + host;
     }
 
-    private String buildDeliveryMessage(String baseUrl, UUID patientId) {
-        String token = createDeliveryToken(patientId);
+    private String buildDeliveryMessage(String baseUrl, UUID patientId, String token) {
         String link = baseUrl + "/delivery/confirm?patient=" + patientId + "&token=" + token;
         return "Do want ur medicine delivered? Tap this link: " + link;
     }
@@ -832,51 +877,12 @@ public class AppServer {
         return "/delivery/respond?patient=" + patientId + "&choice=" + choice + "&token=" + token;
     }
 
-    private String createDeliveryToken(UUID patientId) {
-        String payload = patientId.toString();
-        return hmacSha256Hex(payload, deliveryTokenSecret);
-    }
-
-    private boolean isValidDeliveryToken(UUID patientId, String token) {
-        if (token == null || token.isBlank()) {
-            return false;
-        }
-        String expected = createDeliveryToken(patientId);
-        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
-    }
-
-    private String hmacSha256Hex(String payload, String secret) {
-        try {
-            Mac mac = Mac.getInstance("HmacSHA256");
-            SecretKeySpec keySpec = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
-            mac.init(keySpec);
-            byte[] result = mac.doFinal(payload.getBytes(StandardCharsets.UTF_8));
-            StringBuilder sb = new StringBuilder(result.length * 2);
-            for (byte b : result) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to generate delivery token", e);
-        }
-    }
-
-    private String resolveDeliveryTokenSecret() {
-        String secret = System.getenv("DELIVERY_TOKEN_SECRET");
-        if (secret == null || secret.isBlank()) {
-            System.out.println("DELIVERY_TOKEN_SECRET not set; using a development default.");
-            return "dev-secret";
-        }
-        return secret;
-    }
-
     private String layoutMessage(String message) {
         String safe = escapeHtml(message == null ? "" : message);
         return "<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"UTF-8\" />"
                 + "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\" />"
                 + "<title>Response</title>"
-                + "<style>body{font-family:Arial,sans-serif;background:#f4f6f8;color:#12212f;margin:40px auto;max-width:640px;padding:0 16px;}"
-                + ".card{background:#fff;padding:16px;border-radius:10px;box-shadow:0 4px 10px rgba(0,0,0,0.06);}</style>"
+                + "<link rel=\"stylesheet\" href=\"" + PageAssets.MESSAGE_STYLESHEET.url() + "\" />"
                 + "</head><body><div class=\"card\"><p>" + safe + "</p></div></body></html>";
     }
 
@@ -886,11 +892,7 @@ public class AppServer {
         return "<!DOCTYPE html><html lang=\"en\"><head><meta charset=\"UTF-8\" />"
                 + "<meta name=\"viewport\" content=\"width=device-width, initial-scale=1\" />"
                 + "<title>Delivery Response</title>"
-                + "<style>body{font-family:Arial,sans-serif;background:#f4f6f8;color:#12212f;margin:40px auto;max-width:640px;padding:0 16px;}"
-                + ".card{background:#fff;padding:16px;border-radius:10px;box-shadow:0 4px 10px rgba(0,0,0,0.06);} "
-                + ".actions{display:flex;gap:10px;margin-top:12px;} "
-                + ".btn{display:inline-block;padding:10px 14px;border-radius:6px;text-decoration:none;color:#fff;} "
-                + ".yes{background:#15803d;} .no{background:#b00020;}</style>"
+                + "<link rel=\"stylesheet\" href=\"" + PageAssets.MESSAGE_STYLESHEET.url() + "\" />"
                 + "</head><body><div class=\"card\"><h3>Do want your medicine delivered?</h3>"
                 + "<div class=\"actions\">"
                 + "<a class=\"btn yes\" href=\"" + yesSafe + "\">Yes</a>"
@@ -908,7 +910,7 @@ public class AppServer {
     private String resolveAdminUser() {
         String user = System.getenv("ADMIN_USER");
         if (user == null || user.isBlank()) {
-            System.out.println("ADMIN_USER not set; defaulting to admin.");
+            Log.warn("config.default", "name", "ADMIN_USER", "value", "admin");
             return "admin";
         }
         return user;
@@ -917,7 +919,7 @@ public class AppServer {
     private String resolveAdminPass() {
         String pass = System.getenv("ADMIN_PASS");
         if (pass == null || pass.isBlank()) {
-            System.out.println("ADMIN_PASS not set; defaulting to adminpass.");
+            Log.warn("config.default", "name", "ADMIN_PASS", "value", "adminpass");
             return "adminpass";
         }
         return pass;
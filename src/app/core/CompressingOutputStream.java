@@ -0,0 +1,103 @@
+package app.core;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+final class CompressingOutputStream extends OutputStream {
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final OutputStream out;
+    private final ResponseCompression compression;
+    private final ResponseCompression.Slot slot;
+    private final boolean gzip;
+    private final byte[] single = new byte[1];
+    private long bytesOut;
+    private boolean closed;
+
+    CompressingOutputStream(OutputStream out, ResponseCompression compression, ResponseCompression.Slot slot, boolean gzip) throws IOException {
+        this.out = out;
+        this.compression = compression;
+        this.slot = slot;
+        this.gzip = gzip;
+        if (gzip) {
+            out.write(GZIP_HEADER);
+            bytesOut += GZIP_HEADER.length;
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        single[0] = (byte) b;
+        write(single, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return;
+        }
+        if (gzip) {
+            slot.crc.update(b, off, len);
+        }
+        Deflater deflater = slot.deflater;
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            drain(Deflater.NO_FLUSH);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!closed) {
+            drain(Deflater.SYNC_FLUSH);
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Deflater deflater = slot.deflater;
+        long bytesIn = deflater.getBytesRead();
+        try {
+            deflater.finish();
+            while (!deflater.finished()) {
+                drain(Deflater.NO_FLUSH);
+            }
+            if (gzip) {
+                writeIntLe(slot.crc.getValue());
+                writeIntLe(bytesIn);
+                bytesOut += 8;
+            }
+            out.close();
+        } finally {
+            compression.release(slot, gzip, bytesIn, bytesOut);
+        }
+    }
+
+    private void drain(int flushMode) throws IOException {
+        byte[] buffer = slot.buffer;
+        int n;
+        do {
+            n = slot.deflater.deflate(buffer, 0, buffer.length, flushMode);
+            if (n > 0) {
+                out.write(buffer, 0, n);
+                bytesOut += n;
+            }
+        } while (n == buffer.length);
+    }
+
+    private void writeIntLe(long value) throws IOException {
+        out.write((int) (value & 0xff));
+        out.write((int) ((value >> 8) & 0xff));
+        out.write((int) ((value >> 16) & 0xff));
+        out.write((int) ((value >> 24) & 0xff));
+    }
+}
@@ -0,0 +1,110 @@
+package app.core;
+
+import app.log.Log;
+import app.util.Env;
+import app.util.HmacSigner;
+import app.util.Hex;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class DeliveryTokenService {
+    private static final int UUID_CHARS = 36;
+    private static final int EXPIRY_CHARS = 16;
+    private static final int SIGNATURE_CHARS = HmacSigner.SIGNATURE_BYTES * 2;
+
+    private final HmacSigner signer;
+    private final long ttlSeconds;
+
+    public DeliveryTokenService(String secret, long ttlSeconds) {
+        this.signer = HmacSigner.of(secret);
+        this.ttlSeconds = Math.max(0, ttlSeconds);
+    }
+
+    public static DeliveryTokenService fromEnv() {
+        String secret = System.getenv("DELIVERY_TOKEN_SECRET");
+        if (secret == null || secret.isBlank()) {
+            Log.warn("config.default", "name", "DELIVERY_TOKEN_SECRET", "value", "development default");
+            secret = "dev-secret";
+        }
+        return new DeliveryTokenService(secret, Env.longValue("DELIVERY_TOKEN_TTL_SECONDS", 0));
+    }
+
+    public String mint(UUID patientId) {
+        return mint(patientId, expiresAt(), new byte[payloadCapacity()], new byte[HmacSigner.SIGNATURE_BYTES]);
+    }
+
+    public Map<UUID, String> mintAll(Collection<UUID> patientIds) {
+        Map<UUID, String> tokens = new HashMap<>(Math.max(16, patientIds.size() * 2));
+        long expiresAt = expiresAt();
+        byte[] payload = new byte[payloadCapacity()];
+        byte[] signature = new byte[HmacSigner.SIGNATURE_BYTES];
+        for (UUID patientId : patientIds) {
+            tokens.put(patientId, mint(patientId, expiresAt, payload, signature));
+        }
+        return tokens;
+    }
+
+    public boolean verify(UUID patientId, String token) {
+        if (token == null) {
+            return false;
+        }
+        long expiresAt;
+        int signatureStart;
+        if (token.length() == SIGNATURE_CHARS) {
+            expiresAt = 0;
+            signatureStart = 0;
+        } else if (token.length() == EXPIRY_CHARS + SIGNATURE_CHARS) {
+            try {
+                expiresAt = Hex.decodeLong(token, 0);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            signatureStart = EXPIRY_CHARS;
+        } else {
+            return false;
+        }
+        byte[] signature = Hex.decode(token, signatureStart, token.length());
+        if (signature == null) {
+            return false;
+        }
+        byte[] payload = new byte[payloadCapacity()];
+        int length = payload(patientId, expiresAt, payload);
+        boolean valid = signer.verify(payload, 0, length, signature, 0, signature.length);
+        return valid && (expiresAt == 0 || nowSeconds() < expiresAt);
+    }
+
+    private String mint(UUID patientId, long expiresAt, byte[] payload, byte[] signature) {
+        int length = payload(patientId, expiresAt, payload);
+        signer.sign(payload, 0, length, signature, 0);
+        byte[] token = new byte[(expiresAt == 0 ? 0 : EXPIRY_CHARS) + SIGNATURE_CHARS];
+        int position = expiresAt == 0 ? 0 : Hex.encodeLong(expiresAt, token, 0);
+        Hex.encode(signature, 0, signature.length, token, position);
+        return new String(token, StandardCharsets.ISO_8859_1);
+    }
+
+    private static int payload(UUID patientId, long expiresAt, byte[] out) {
+        int position = Hex.encodeUuid(patientId, out, 0);
+        if (expiresAt != 0) {
+            out[position++] = '|';
+            position = Hex.encodeLong(expiresAt, out, position);
+        }
+        return position;
+    }
+
+    private static int payloadCapacity() {
+        return UUID_CHARS + 1 + EXPIRY_CHARS;
+    }
+
+    private long expiresAt() {
+        return ttlSeconds == 0 ? 0 : nowSeconds() + ttlSeconds;
+    }
+
+    private static long nowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+}
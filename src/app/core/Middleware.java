@@ -0,0 +1,15 @@
+package app.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface Middleware {
+    void handle(HttpExchange exchange, HttpHandler next) throws IOException;
+
+    default HttpHandler wrap(HttpHandler next) {
+        return exchange -> handle(exchange, next);
+    }
+}
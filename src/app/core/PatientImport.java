@@ -0,0 +1,451 @@
+package app.core;
+
+import app.db.Database;
+import app.log.Log;
+import app.model.Patient;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+public final class PatientImport {
+    private static final int MAX_RECORD_CHARS = 64 * 1024;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final int MAX_HEADER_FIELDS = 64;
+
+    public enum Format { CSV, NDJSON }
+
+    public record RowError(long line, String error) {}
+
+    public record Result(long imported, long failed, List<RowError> errors, boolean truncated, boolean aborted) {}
+
+    private final Database database;
+    private final int batchSize;
+    private final long maxRows;
+
+    public PatientImport(Database database, int batchSize, long maxRows) {
+        this.database = database;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRows = Math.max(1, maxRows);
+    }
+
+    public static Format formatOf(String contentType, String requested) {
+        String type = requested == null || requested.isBlank() ? contentType : requested;
+        if (type == null) {
+            return null;
+        }
+        type = type.toLowerCase(Locale.ROOT);
+        if (type.contains("csv")) {
+            return Format.CSV;
+        }
+        if (type.contains("ndjson") || type.contains("jsonl") || type.contains("x-json-stream")) {
+            return Format.NDJSON;
+        }
+        return null;
+    }
+
+    public Result run(InputStream body, Format format, String doctorUsername) throws IOException {
+        Run run = new Run(doctorUsername);
+        Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+        RecordReader records = new RecordReader(reader, format == Format.CSV);
+        List<String> header = null;
+        List<String> record;
+        while ((record = records.next()) != null) {
+            if (records.problem() != null) {
+                run.rows++;
+                run.reject(records.line(), records.problem());
+                continue;
+            }
+            if (format == Format.CSV && header == null) {
+                header = new ArrayList<>(record.size());
+                for (String column : record) {
+                    header.add(column.trim().toLowerCase(Locale.ROOT));
+                }
+                records.maxFields(header.size());
+                continue;
+            }
+            if (run.rows >= maxRows) {
+                run.truncated = true;
+                break;
+            }
+            run.rows++;
+            try {
+                Map<String, String> fields = format == Format.CSV ? columns(header, record) : parseObject(record.get(0));
+                run.accept(records.line(), fields);
+            } catch (IllegalArgumentException e) {
+                run.reject(records.line(), e.getMessage());
+            }
+            if (run.aborted) {
+                break;
+            }
+        }
+        run.flush();
+        return new Result(run.imported, run.failed, List.copyOf(run.errors), run.truncated, run.aborted);
+    }
+
+    private final class Run {
+        private final String doctorUsername;
+        private final List<Patient> batch = new ArrayList<>(batchSize);
+        private final List<RowError> errors = new ArrayList<>();
+        private long rows;
+        private long imported;
+        private long failed;
+        private boolean truncated;
+        private boolean aborted;
+        private long batchFirstLine;
+        private long batchLastLine;
+
+        Run(String doctorUsername) {
+            this.doctorUsername = doctorUsername;
+        }
+
+        void accept(long line, Map<String, String> fields) {
+            String name = field(fields, "name");
+            String email = field(fields, "email");
+            String phone = field(fields, "phone");
+            String address = field(fields, "address");
+            String gender = field(fields, "gender");
+            String ageRaw = field(fields, "age");
+            List<String> missing = new ArrayList<>();
+            for (String[] required : new String[][] {{"name", name}, {"email", email}, {"phone", phone}, {"address", address}, {"age", ageRaw}, {"gender", gender}}) {
+                if (required[1].isEmpty()) {
+                    missing.add(required[0]);
+                }
+            }
+            if (!missing.isEmpty()) {
+                reject(line, "missing " + String.join(", ", missing));
+                return;
+            }
+            Integer age = parseAge(ageRaw);
+            if (age == null) {
+                reject(line, "invalid age");
+                return;
+            }
+            if (batch.isEmpty()) {
+                batchFirstLine = line;
+            }
+            batchLastLine = line;
+            batch.add(new Patient(UUID.randomUUID(), name, email, phone, age, gender, address, field(fields, "notes"), doctorUsername, "pending"));
+            if (batch.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void reject(long line, String error) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, error));
+            }
+        }
+
+        void flush() {
+            if (batch.isEmpty() || aborted) {
+                return;
+            }
+            try {
+                database.savePatients(List.copyOf(batch));
+                imported += batch.size();
+            } catch (RuntimeException e) {
+                Log.error("patient.import_failed", e, "doctor", doctorUsername, "firstLine", batchFirstLine, "lastLine", batchLastLine);
+                aborted = true;
+                failed += batch.size();
+                errors.add(new RowError(batchFirstLine, "lines " + batchFirstLine + "-" + batchLastLine
+                        + " could not be saved; import stopped"));
+            }
+            batch.clear();
+        }
+    }
+
+    private static String field(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        return value == null ? "" : value.trim();
+    }
+
+    private static Integer parseAge(String raw) {
+        try {
+            int age = Integer.parseInt(raw);
+            return age >= 0 ? age : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Map<String, String> columns(List<String> header, List<String> record) {
+        if (record.size() > header.size()) {
+            throw new IllegalArgumentException("expected " + header.size() + " columns, found " + record.size());
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < record.size(); i++) {
+            fields.put(header.get(i), record.get(i));
+        }
+        return fields;
+    }
+
+    private static Map<String, String> parseObject(String json) {
+        Map<String, String> fields = new HashMap<>();
+        int[] pos = {skipSpace(json, 0)};
+        expect(json, pos, '{');
+        pos[0] = skipSpace(json, pos[0]);
+        if (peek(json, pos[0]) == '}') {
+            pos[0]++;
+        } else {
+            while (true) {
+                pos[0] = skipSpace(json, pos[0]);
+                String key = parseString(json, pos);
+                pos[0] = skipSpace(json, pos[0]);
+                expect(json, pos, ':');
+                pos[0] = skipSpace(json, pos[0]);
+                String value = parseValue(json, pos);
+                if (value != null) {
+                    fields.put(key.toLowerCase(Locale.ROOT), value);
+                }
+                pos[0] = skipSpace(json, pos[0]);
+                char c = peek(json, pos[0]);
+                pos[0]++;
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw new IllegalArgumentException("invalid JSON: expected ',' or '}' at column " + pos[0]);
+                }
+            }
+        }
+        if (skipSpace(json, pos[0]) != json.length()) {
+            throw new IllegalArgumentException("invalid JSON: trailing characters at column " + (pos[0] + 1));
+        }
+        return fields;
+    }
+
+    private static String parseValue(String json, int[] pos) {
+        char c = peek(json, pos[0]);
+        if (c == '"') {
+            return parseString(json, pos);
+        }
+        if (c == '{' || c == '[') {
+            throw new IllegalArgumentException("invalid JSON: nested values are not supported");
+        }
+        int start = pos[0];
+        while (pos[0] < json.length() && ",} \t\r\n".indexOf(json.charAt(pos[0])) < 0) {
+            pos[0]++;
+        }
+        String token = json.substring(start, pos[0]);
+        if (token.equals("null")) {
+            return null;
+        }
+        if (token.isEmpty() || !(token.equals("true") || token.equals("false") || token.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?"))) {
+            throw new IllegalArgumentException("invalid JSON: unexpected value at column " + (start + 1));
+        }
+        return token;
+    }
+
+    private static String parseString(String json, int[] pos) {
+        expect(json, pos, '"');
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            if (pos[0] >= json.length()) {
+                throw new IllegalArgumentException("invalid JSON: unterminated string");
+            }
+            char c = json.charAt(pos[0]++);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            char escaped = peek(json, pos[0]++);
+            switch (escaped) {
+                case '"', '\\', '/' -> sb.append(escaped);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (pos[0] + 4 > json.length()) {
+                        throw new IllegalArgumentException("invalid JSON: bad unicode escape");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(json.substring(pos[0], pos[0] + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("invalid JSON: bad unicode escape");
+                    }
+                    pos[0] += 4;
+                }
+                default -> throw new IllegalArgumentException("invalid JSON: bad escape at column " + pos[0]);
+            }
+        }
+    }
+
+    private static void expect(String json, int[] pos, char expected) {
+        if (peek(json, pos[0]) != expected) {
+            throw new IllegalArgumentException("invalid JSON: expected '" + expected + "' at column " + (pos[0] + 1));
+        }
+        pos[0]++;
+    }
+
+    private static char peek(String json, int pos) {
+        return pos < json.length() ? json.charAt(pos) : '\0';
+    }
+
+    private static int skipSpace(String json, int pos) {
+        while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static final class RecordReader {
+        private final Reader reader;
+        private final boolean csv;
+        private final StringBuilder field = new StringBuilder();
+        private long nextLine = 1;
+        private long line;
+        private String problem;
+        private boolean started;
+        private int maxFields = MAX_HEADER_FIELDS;
+
+        RecordReader(Reader reader, boolean csv) {
+            this.reader = reader;
+            this.csv = csv;
+        }
+
+        long line() {
+            return line;
+        }
+
+        String problem() {
+            return problem;
+        }
+
+        void maxFields(int maxFields) {
+            this.maxFields = maxFields;
+        }
+
+        List<String> next() throws IOException {
+            while (true) {
+                line = nextLine;
+                problem = null;
+                List<String> record;
+                if (csv) {
+                    record = csvRecord();
+                } else {
+                    String text = jsonLine();
+                    record = text == null ? null : List.of(text);
+                }
+                if (record == null) {
+                    return null;
+                }
+                if (problem != null || record.size() > 1 || !record.get(0).isBlank()) {
+                    return record;
+                }
+            }
+        }
+
+        private String jsonLine() throws IOException {
+            field.setLength(0);
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            while (c >= 0 && c != '\n') {
+                append((char) c);
+                c = read();
+            }
+            nextLine++;
+            return field.toString();
+        }
+
+        private List<String> csvRecord() throws IOException {
+            int c = read();
+            if (c < 0) {
+                return null;
+            }
+            List<String> record = new ArrayList<>();
+            field.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c < 0) {
+                        problem = "unterminated quoted field";
+                        addField(record, field.toString());
+                        return record;
+                    }
+                    if (c == '"') {
+                        int after = read();
+                        if (after == '"') {
+                            append('"');
+                        } else {
+                            quoted = false;
+                            c = after;
+                            continue;
+                        }
+                    } else {
+                        if (c == '\n') {
+                            nextLine++;
+                        }
+                        append((char) c);
+                    }
+                } else if (c < 0 || c == '\n') {
+                    if (c == '\n') {
+                        nextLine++;
+                    }
+                    addField(record, trimCarriageReturn());
+                    return record;
+                } else if (c == ',') {
+                    addField(record, field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else {
+                    append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private void addField(List<String> record, String value) {
+            if (record.size() < maxFields) {
+                record.add(value);
+            } else if (problem == null) {
+                problem = "expected at most " + maxFields + " columns";
+            }
+        }
+
+        private String trimCarriageReturn() {
+            int end = field.length();
+            if (end > 0 && field.charAt(end - 1) == '\r') {
+                end--;
+            }
+            return field.substring(0, end);
+        }
+
+        private void append(char c) {
+            if (field.length() < MAX_RECORD_CHARS) {
+                field.append(c);
+            } else {
+                problem = "value is longer than " + MAX_RECORD_CHARS + " characters";
+            }
+        }
+
+        private int read() throws IOException {
+            int c = reader.read();
+            if (!started) {
+                started = true;
+                if (c == '\uFEFF') {
+                    c = reader.read();
+                }
+            }
+            return c;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package app.core;
+
+public class PayloadTooLargeException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public PayloadTooLargeException(long limit) {
+        super("Request body exceeds " + limit + " bytes");
+    }
+}
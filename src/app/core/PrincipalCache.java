@@ -0,0 +1,93 @@
+package app.core;
+
+import app.metrics.MetricsRegistry;
+import app.model.Doctor;
+import app.util.Env;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+public class PrincipalCache {
+    private static final int EVICTION_SAMPLE = 8;
+
+    private record Entry(Doctor doctor, long loadedAt) {}
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder evictions;
+
+    public PrincipalCache(int maxEntries, long ttlSeconds, MetricsRegistry metrics) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = ttlSeconds <= 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.hits = metrics.counter("auth_principal_cache_hits_total", "Authenticated requests served from the principal cache.");
+        this.misses = metrics.counter("auth_principal_cache_misses_total", "Authenticated requests that loaded the principal from the database.");
+        this.evictions = metrics.counter("auth_principal_cache_evictions_total", "Principals evicted to keep the cache bounded.");
+        metrics.gauge("auth_principal_cache_entries", "Principals currently cached.", entries::size);
+    }
+
+    public static PrincipalCache fromEnv(MetricsRegistry metrics) {
+        return new PrincipalCache(
+                Env.intValue("PRINCIPAL_CACHE_SIZE", 10_000),
+                Env.longValue("PRINCIPAL_CACHE_TTL_SECONDS", 300),
+                metrics);
+    }
+
+    public Optional<Doctor> get(String username, Function<String, Optional<Doctor>> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(username);
+        if (entry != null && now - entry.loadedAt() < ttlNanos) {
+            hits.increment();
+            return Optional.of(entry.doctor());
+        }
+        misses.increment();
+        long epoch = invalidations.get();
+        Optional<Doctor> doctor = loader.apply(username);
+        if (doctor.isPresent() && invalidations.get() == epoch) {
+            put(doctor.get(), now);
+        } else if (doctor.isEmpty()) {
+            entries.remove(username);
+        }
+        return doctor;
+    }
+
+    public void put(Doctor doctor) {
+        put(doctor, System.nanoTime());
+    }
+
+    public void invalidate(String username) {
+        invalidations.incrementAndGet();
+        entries.remove(username);
+    }
+
+    private void put(Doctor doctor, long loadedAt) {
+        if (entries.put(doctor.username(), new Entry(doctor, loadedAt)) == null && entries.size() > maxEntries) {
+            evictOldest(doctor.username());
+        }
+    }
+
+    private void evictOldest(String keep) {
+        String victim = null;
+        long oldest = Long.MAX_VALUE;
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+            Map.Entry<String, Entry> candidate = it.next();
+            if (!candidate.getKey().equals(keep) && candidate.getValue().loadedAt() < oldest) {
+                victim = candidate.getKey();
+                oldest = candidate.getValue().loadedAt();
+            }
+        }
+        if (victim != null && entries.remove(victim) != null) {
+            evictions.increment();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package app.core;
+
+import app.util.Env;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public final class RequestContext {
+    private static final String ATTRIBUTE = "app.context";
+    private static final int MAX_BODY_BYTES = Math.max(0, Env.intValue("MAX_BODY_BYTES", 1024 * 1024));
+
+    private final HttpExchange exchange;
+    private Map<String, String> query;
+    private Map<String, String> form;
+    private Map<String, String> cookies;
+
+    private RequestContext(HttpExchange exchange) {
+        this.exchange = exchange;
+    }
+
+    public static RequestContext of(HttpExchange exchange) {
+        if (!(exchange instanceof ScopedExchange)) {
+            // Attributes of a raw exchange live on its shared HttpContext, so caching there would leak
+            // one request's cookies and form into every later request on the same context.
+            return new RequestContext(exchange);
+        }
+        Object existing = exchange.getAttribute(ATTRIBUTE);
+        if (existing instanceof RequestContext context) {
+            return context;
+        }
+        RequestContext context = new RequestContext(exchange);
+        exchange.setAttribute(ATTRIBUTE, context);
+        return context;
+    }
+
+    public Map<String, String> query() {
+        if (query == null) {
+            String raw = exchange.getRequestURI().getRawQuery();
+            if (raw == null || raw.isEmpty()) {
+                query = Map.of();
+            } else {
+                byte[] bytes = raw.getBytes(StandardCharsets.UTF_8);
+                query = parseUrlEncoded(bytes, bytes.length);
+            }
+        }
+        return query;
+    }
+
+    public String query(String name) {
+        return query().getOrDefault(name, "");
+    }
+
+    public Map<String, String> form() throws IOException {
+        if (form == null) {
+            byte[] body = readBody();
+            form = body.length == 0 ? Map.of() : parseUrlEncoded(body, body.length);
+        }
+        return form;
+    }
+
+    public String cookie(String name) {
+        if (cookies == null) {
+            cookies = parseCookies(exchange.getRequestHeaders().get("Cookie"));
+        }
+        return cookies.get(name);
+    }
+
+    private byte[] readBody() throws IOException {
+        String declared = exchange.getRequestHeaders().getFirst("Content-Length");
+        int expected = 0;
+        if (declared != null) {
+            long length;
+            try {
+                length = Long.parseLong(declared.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid Content-Length");
+            }
+            if (length > MAX_BODY_BYTES) {
+                throw new PayloadTooLargeException(MAX_BODY_BYTES);
+            }
+            expected = (int) Math.max(0, length);
+        }
+        byte[] buffer = new byte[expected > 0 ? expected : Math.min(MAX_BODY_BYTES, 8192)];
+        int length = 0;
+        try (InputStream in = exchange.getRequestBody()) {
+            while (true) {
+                if (length == buffer.length) {
+                    if (length >= MAX_BODY_BYTES) {
+                        if (in.read() < 0) {
+                            break;
+                        }
+                        throw new PayloadTooLargeException(MAX_BODY_BYTES);
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(MAX_BODY_BYTES, Math.max(16L, buffer.length * 2L)));
+                }
+                int n = in.read(buffer, length, buffer.length - length);
+                if (n < 0) {
+                    break;
+                }
+                length += n;
+            }
+        }
+        return length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+    }
+
+    private static Map<String, String> parseUrlEncoded(byte[] bytes, int length) {
+        Map<String, String> fields = new HashMap<>();
+        byte[] scratch = new byte[length];
+        int start = 0;
+        while (start <= length) {
+            int end = start;
+            int equals = -1;
+            while (end < length && bytes[end] != '&') {
+                if (equals < 0 && bytes[end] == '=') {
+                    equals = end;
+                }
+                end++;
+            }
+            if (end > start) {
+                int keyEnd = equals < 0 ? end : equals;
+                String key = decode(bytes, start, keyEnd, scratch);
+                String value = equals < 0 ? "" : decode(bytes, equals + 1, end, scratch);
+                fields.put(key, value);
+            }
+            start = end + 1;
+        }
+        return fields;
+    }
+
+    private static String decode(byte[] bytes, int start, int end, byte[] scratch) {
+        int length = 0;
+        boolean plain = true;
+        for (int i = start; i < end; i++) {
+            byte b = bytes[i];
+            if (b == '+') {
+                scratch[length++] = ' ';
+                plain = false;
+            } else if (b == '%' && i + 2 < end && hex(bytes[i + 1]) >= 0 && hex(bytes[i + 2]) >= 0) {
+                scratch[length++] = (byte) ((hex(bytes[i + 1]) << 4) | hex(bytes[i + 2]));
+                i += 2;
+                plain = false;
+            } else {
+                scratch[length++] = b;
+            }
+        }
+        if (plain) {
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static Map<String, String> parseCookies(List<String> headers) {
+        if (headers == null || headers.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, String> cookies = new HashMap<>();
+        for (String header : headers) {
+            int length = header.length();
+            int i = 0;
+            while (i < length) {
+                while (i < length && (header.charAt(i) == ' ' || header.charAt(i) == ';')) {
+                    i++;
+                }
+                int nameStart = i;
+                while (i < length && header.charAt(i) != '=' && header.charAt(i) != ';') {
+                    i++;
+                }
+                int nameEnd = i;
+                if (i >= length || header.charAt(i) != '=') {
+                    continue;
+                }
+                int valueStart = ++i;
+                while (i < length && header.charAt(i) != ';') {
+                    i++;
+                }
+                int valueEnd = i;
+                while (valueEnd > valueStart && header.charAt(valueEnd - 1) == ' ') {
+                    valueEnd--;
+                }
+                if (nameEnd > nameStart) {
+                    cookies.putIfAbsent(header.substring(nameStart, nameEnd), header.substring(valueStart, valueEnd));
+                }
+            }
+        }
+        return cookies;
+    }
+}
@@ -0,0 +1,49 @@
+package app.core;
+
+import app.metrics.LatencyHistogram;
+import app.metrics.MetricsRegistry;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class RequestTiming implements Middleware {
+    private final MetricsRegistry metrics;
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> responses = new ConcurrentHashMap<>();
+
+    public RequestTiming(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange, HttpHandler next) throws IOException {
+        long start = System.nanoTime();
+        try {
+            next.handle(exchange);
+        } finally {
+            String route = Router.routeOf(exchange);
+            String method = normalizeMethod(exchange.getRequestMethod());
+            latencies.computeIfAbsent(method + " " + route, k -> metrics.histogram(
+                    "http_request_duration_seconds",
+                    MetricsRegistry.label("method", method) + "," + MetricsRegistry.label("route", route),
+                    "Request latency by route.")).recordNanos(System.nanoTime() - start);
+            int status = exchange.getResponseCode();
+            String statusClass = status < 0 ? "none" : (status / 100) + "xx";
+            responses.computeIfAbsent(route + " " + statusClass, k -> metrics.counter(
+                    "http_responses_total",
+                    MetricsRegistry.label("route", route) + "," + MetricsRegistry.label("status", statusClass),
+                    "Responses by route and status class.")).increment();
+        }
+    }
+
+    private static String normalizeMethod(String method) {
+        return switch (method) {
+            case "GET", "POST", "HEAD", "PUT", "DELETE", "OPTIONS", "PATCH" -> method;
+            default -> "OTHER";
+        };
+    }
+}
@@ -0,0 +1,151 @@
+package app.core;
+
+import app.metrics.MetricsRegistry;
+import app.util.Env;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+public class ResponseCompression {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String BROTLI = "br";
+
+    static final class Slot {
+        final Deflater deflater;
+        final CRC32 crc = new CRC32();
+        final byte[] buffer = new byte[8192];
+
+        private Slot(int level, boolean gzip) {
+            this.deflater = new Deflater(level, gzip);
+        }
+    }
+
+    private final boolean enabled;
+    private final int minBytes;
+    private final int level;
+    private final BlockingQueue<Slot> gzipPool;
+    private final BlockingQueue<Slot> deflatePool;
+    private final LongAdder compressed;
+    private final LongAdder bytesIn;
+    private final LongAdder bytesOut;
+
+    public ResponseCompression(boolean enabled, int minBytes, int level, int poolSize, MetricsRegistry metrics) {
+        this.enabled = enabled;
+        this.minBytes = Math.max(0, minBytes);
+        this.level = Math.max(Deflater.BEST_SPEED, Math.min(Deflater.BEST_COMPRESSION, level));
+        this.gzipPool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.deflatePool = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+        this.compressed = metrics.counter("http_compressed_responses_total", "Responses compressed on the fly.");
+        this.bytesIn = metrics.counter("http_compression_bytes_in_total", "Uncompressed bytes fed to the compressor.");
+        this.bytesOut = metrics.counter("http_compression_bytes_out_total", "Compressed bytes written to clients.");
+        metrics.gauge("http_compressor_pool_idle", "Idle pooled compressors.", () -> gzipPool.size() + deflatePool.size());
+    }
+
+    public static ResponseCompression fromEnv(MetricsRegistry metrics) {
+        return new ResponseCompression(
+                Env.flag("COMPRESSION_ENABLED", true),
+                Env.intValue("COMPRESSION_MIN_BYTES", 1024),
+                Env.intValue("COMPRESSION_LEVEL", 6),
+                Env.intValue("COMPRESSION_POOL_SIZE", Runtime.getRuntime().availableProcessors() * 2),
+                metrics);
+    }
+
+    public String negotiate(HttpExchange exchange, String contentType, long length) {
+        if (!enabled || length < minBytes || !isCompressible(contentType)) {
+            return null;
+        }
+        return preferred(exchange.getRequestHeaders().getFirst("Accept-Encoding"), GZIP, DEFLATE);
+    }
+
+    public OutputStream wrap(OutputStream out, String encoding) throws IOException {
+        boolean gzip = GZIP.equals(encoding);
+        Slot slot = (gzip ? gzipPool : deflatePool).poll();
+        if (slot == null) {
+            slot = new Slot(level, gzip);
+        }
+        compressed.increment();
+        return new CompressingOutputStream(out, this, slot, gzip);
+    }
+
+    public static boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        return contentType.startsWith("text/")
+                || contentType.startsWith("application/json")
+                || contentType.startsWith("application/javascript")
+                || contentType.startsWith("image/svg+xml");
+    }
+
+    public static String preferred(String acceptEncoding, String... available) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return null;
+        }
+        String best = null;
+        double bestQ = 0;
+        for (String candidate : available) {
+            double q = qualityOf(acceptEncoding, candidate);
+            if (q > bestQ) {
+                best = candidate;
+                bestQ = q;
+            }
+        }
+        return best;
+    }
+
+    void release(Slot slot, boolean gzip, long in, long out) {
+        bytesIn.add(in);
+        bytesOut.add(out);
+        slot.deflater.reset();
+        slot.crc.reset();
+        if (!(gzip ? gzipPool : deflatePool).offer(slot)) {
+            slot.deflater.end();
+        }
+    }
+
+    private static double qualityOf(String header, String encoding) {
+        double wildcard = -1;
+        int start = 0;
+        int length = header.length();
+        while (start < length) {
+            int end = header.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int semicolon = header.indexOf(';', start);
+            int nameEnd = semicolon >= 0 && semicolon < end ? semicolon : end;
+            String name = header.substring(start, nameEnd).trim();
+            double q = 1;
+            if (nameEnd < end) {
+                q = parseQuality(header.substring(nameEnd + 1, end));
+            }
+            if (name.equalsIgnoreCase(encoding)) {
+                return q;
+            }
+            if (name.equals("*")) {
+                wildcard = q;
+            }
+            start = end + 1;
+        }
+        return Math.max(wildcard, 0);
+    }
+
+    private static double parseQuality(String params) {
+        String trimmed = params.trim();
+        if (!trimmed.startsWith("q=")) {
+            return 1;
+        }
+        try {
+            return Double.parseDouble(trimmed.substring(2).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
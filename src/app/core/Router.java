@@ -0,0 +1,256 @@
+package app.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class Router implements HttpHandler {
+    private static final String ROUTE_ATTRIBUTE = "app.route";
+    private static final String PARAMS_ATTRIBUTE = "app.pathParams";
+    private static final String UNMATCHED = "unmatched";
+
+    private final Map<String, CompiledRoute> exact;
+    private final Map<Integer, List<CompiledRoute>> parameterized;
+    private final List<CompiledRoute> prefixes;
+    private final HttpHandler notFound;
+
+    private Router(Map<String, CompiledRoute> exact, Map<Integer, List<CompiledRoute>> parameterized,
+                   List<CompiledRoute> prefixes, HttpHandler notFound) {
+        this.exact = exact;
+        this.parameterized = parameterized;
+        this.prefixes = prefixes;
+        this.notFound = notFound;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static String routeOf(HttpExchange exchange) {
+        Object route = exchange.getAttribute(ROUTE_ATTRIBUTE);
+        return route == null ? UNMATCHED : route.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    public static String pathParam(HttpExchange exchange, String name) {
+        Object params = exchange.getAttribute(PARAMS_ATTRIBUTE);
+        if (params == null) {
+            return null;
+        }
+        return ((Map<String, String>) params).get(name);
+    }
+
+    @Override
+    public void handle(HttpExchange raw) throws IOException {
+        HttpExchange exchange = raw instanceof ScopedExchange ? raw : new ScopedExchange(raw);
+        String path = exchange.getRequestURI().getPath();
+        CompiledRoute route = exact.get(path);
+        Map<String, String> params = null;
+        if (route == null) {
+            List<String> segments = segments(path);
+            for (CompiledRoute candidate : parameterized.getOrDefault(segments.size(), List.of())) {
+                params = candidate.match(segments);
+                if (params != null) {
+                    route = candidate;
+                    break;
+                }
+            }
+        }
+        if (route == null) {
+            for (CompiledRoute candidate : prefixes) {
+                if (path.startsWith(candidate.prefix)) {
+                    route = candidate;
+                    params = Map.of("*", path.substring(candidate.prefix.length()));
+                    break;
+                }
+            }
+        }
+        if (route == null) {
+            exchange.setAttribute(ROUTE_ATTRIBUTE, UNMATCHED);
+            notFound.handle(exchange);
+            return;
+        }
+        exchange.setAttribute(ROUTE_ATTRIBUTE, route.pattern);
+        if (params != null) {
+            exchange.setAttribute(PARAMS_ATTRIBUTE, params);
+        }
+        HttpHandler endpoint = route.endpoints.get(exchange.getRequestMethod().toUpperCase(Locale.ROOT));
+        (endpoint == null ? route.methodNotAllowed : endpoint).handle(exchange);
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>(4);
+        int start = path.startsWith("/") ? 1 : 0;
+        for (int i = start; i <= path.length(); i++) {
+            if (i == path.length() || path.charAt(i) == '/') {
+                segments.add(path.substring(start, i));
+                start = i + 1;
+            }
+        }
+        return segments;
+    }
+
+    private static final class CompiledRoute {
+        private final String pattern;
+        private final String prefix;
+        private final String[] literals;
+        private final String[] paramNames;
+        private final Map<String, HttpHandler> endpoints;
+        private final HttpHandler methodNotAllowed;
+
+        private CompiledRoute(String pattern, String prefix, String[] literals, String[] paramNames,
+                              Map<String, HttpHandler> endpoints, HttpHandler methodNotAllowed) {
+            this.pattern = pattern;
+            this.prefix = prefix;
+            this.literals = literals;
+            this.paramNames = paramNames;
+            this.endpoints = endpoints;
+            this.methodNotAllowed = methodNotAllowed;
+        }
+
+        private Map<String, String> match(List<String> segments) {
+            Map<String, String> params = null;
+            for (int i = 0; i < literals.length; i++) {
+                String segment = segments.get(i);
+                if (paramNames[i] == null) {
+                    if (!literals[i].equals(segment)) {
+                        return null;
+                    }
+                } else {
+                    if (segment.isEmpty()) {
+                        return null;
+                    }
+                    if (params == null) {
+                        params = new HashMap<>(4);
+                    }
+                    params.put(paramNames[i], segment);
+                }
+            }
+            return params == null ? Map.of() : params;
+        }
+    }
+
+    private record Endpoint(HttpHandler handler, Middleware[] middleware) {}
+
+    public static final class Builder {
+        private final List<Middleware> global = new ArrayList<>();
+        private final Map<String, Map<String, Endpoint>> routes = new LinkedHashMap<>();
+        private HttpHandler notFound = exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        };
+        private HttpHandler methodNotAllowed = exchange -> {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+        };
+
+        private Builder() {
+        }
+
+        public Builder use(Middleware middleware) {
+            global.add(middleware);
+            return this;
+        }
+
+        public Builder get(String pattern, HttpHandler handler, Middleware... middleware) {
+            return add("GET", pattern, handler, middleware);
+        }
+
+        public Builder post(String pattern, HttpHandler handler, Middleware... middleware) {
+            return add("POST", pattern, handler, middleware);
+        }
+
+        public Builder add(String method, String pattern, HttpHandler handler, Middleware... middleware) {
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Route must start with '/': " + pattern);
+            }
+            Map<String, Endpoint> byMethod = routes.computeIfAbsent(pattern, k -> new LinkedHashMap<>());
+            String key = method.toUpperCase(Locale.ROOT);
+            if (byMethod.putIfAbsent(key, new Endpoint(handler, middleware)) != null) {
+                throw new IllegalStateException("Duplicate route " + key + " " + pattern);
+            }
+            return this;
+        }
+
+        public Builder notFound(HttpHandler handler) {
+            this.notFound = handler;
+            return this;
+        }
+
+        public Builder methodNotAllowed(HttpHandler handler) {
+            this.methodNotAllowed = handler;
+            return this;
+        }
+
+        public Router build() {
+            Map<String, CompiledRoute> exact = new HashMap<>();
+            Map<Integer, List<CompiledRoute>> parameterized = new HashMap<>();
+            List<CompiledRoute> prefixes = new ArrayList<>();
+            for (Map.Entry<String, Map<String, Endpoint>> entry : routes.entrySet()) {
+                CompiledRoute route = compile(entry.getKey(), entry.getValue());
+                if (route.prefix != null) {
+                    prefixes.add(route);
+                } else if (route.literals != null) {
+                    parameterized.computeIfAbsent(route.literals.length, k -> new ArrayList<>()).add(route);
+                } else {
+                    exact.put(route.pattern, route);
+                }
+            }
+            prefixes.sort(Comparator.comparingInt((CompiledRoute r) -> r.prefix.length()).reversed());
+            return new Router(Map.copyOf(exact), Map.copyOf(parameterized), List.copyOf(prefixes), chain(notFound, new Middleware[0]));
+        }
+
+        private CompiledRoute compile(String pattern, Map<String, Endpoint> byMethod) {
+            Map<String, HttpHandler> endpoints = new HashMap<>();
+            for (Map.Entry<String, Endpoint> entry : byMethod.entrySet()) {
+                endpoints.put(entry.getKey(), chain(entry.getValue().handler(), entry.getValue().middleware()));
+            }
+            String allow = String.join(", ", byMethod.keySet());
+            HttpHandler rejectMethod = exchange -> {
+                exchange.getResponseHeaders().set("Allow", allow);
+                methodNotAllowed.handle(exchange);
+            };
+            Middleware[] guard = byMethod.values().iterator().next().middleware();
+            HttpHandler notAllowed = chain(rejectMethod, guard);
+
+            if (pattern.endsWith("/*")) {
+                String prefix = pattern.substring(0, pattern.length() - 1);
+                return new CompiledRoute(pattern, prefix, null, null, Map.copyOf(endpoints), notAllowed);
+            }
+            if (!pattern.contains("{")) {
+                return new CompiledRoute(pattern, null, null, null, Map.copyOf(endpoints), notAllowed);
+            }
+            List<String> segments = segments(pattern);
+            String[] literals = new String[segments.size()];
+            String[] paramNames = new String[segments.size()];
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    paramNames[i] = segment.substring(1, segment.length() - 1);
+                } else {
+                    literals[i] = segment;
+                }
+            }
+            return new CompiledRoute(pattern, null, literals, paramNames, Map.copyOf(endpoints), notAllowed);
+        }
+
+        private HttpHandler chain(HttpHandler handler, Middleware[] routeMiddleware) {
+            HttpHandler current = handler;
+            for (int i = routeMiddleware.length - 1; i >= 0; i--) {
+                current = routeMiddleware[i].wrap(current);
+            }
+            for (int i = global.size() - 1; i >= 0; i--) {
+                current = global.get(i).wrap(current);
+            }
+            return current;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package app.core;
+
+import app.log.Log;
+import app.metrics.MetricsRegistry;
+import app.util.Env;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+public class StaticAssets {
+    private static final Pattern HASHED_NAME = Pattern.compile(".+[-.][A-Za-z0-9_-]{8,}\\.[A-Za-z0-9]+");
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATE = "no-cache";
+
+    private record Variant(String encoding, Path file, long length, String etag, byte[] bytes) {}
+
+    private record Asset(String contentType, boolean immutable, Map<String, Variant> variants, String[] encodings) {
+        Variant identity() {
+            return variants.get("identity");
+        }
+    }
+
+    private final Path root;
+    private final int memoryMaxBytes;
+    private final LongAdder notModified;
+    private final LongAdder reindexed;
+    private volatile Map<String, Asset> index = Map.of();
+    private final Map<String, Asset> generated = new ConcurrentHashMap<>();
+    private volatile long memoryBytes;
+
+    public StaticAssets(Path root, MetricsRegistry metrics) {
+        this.root = root.toAbsolutePath().normalize();
+        this.memoryMaxBytes = Env.intValue("STATIC_MEMORY_MAX_BYTES", 256 * 1024);
+        this.notModified = metrics.counter("static_not_modified_total", "Static responses answered with 304.");
+        this.reindexed = metrics.counter("static_reindex_total", "Times the static asset index was rebuilt.");
+        metrics.gauge("static_assets_indexed", "Static files currently indexed.", () -> index.size());
+        metrics.gauge("static_assets_memory_bytes", "Bytes of static content held in memory.", () -> memoryBytes);
+        reindex();
+        Thread watcher = new Thread(this::watch, "static-assets-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    public void publish(String relativePath, byte[] bytes) throws IOException {
+        String contentType = contentTypeFor(relativePath);
+        Map<String, Variant> variants = new HashMap<>();
+        variants.put("identity", new Variant("identity", null, bytes.length, etag(bytes, "identity"), bytes));
+        addGzip(variants, contentType, bytes);
+        generated.put(relativePath, asset(contentType, true, variants));
+    }
+
+    public boolean serve(HttpExchange exchange, String relativePath) throws IOException {
+        Asset asset = generated.get(relativePath);
+        if (asset == null) {
+            asset = index.get(relativePath);
+        }
+        if (asset == null) {
+            return false;
+        }
+        Variant variant = choose(asset, exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        Headers headers = exchange.getResponseHeaders();
+        headers.set("Content-Type", asset.contentType());
+        headers.set("ETag", variant.etag());
+        headers.set("Cache-Control", asset.immutable() ? IMMUTABLE : REVALIDATE);
+        if (asset.variants().size() > 1) {
+            headers.set("Vary", "Accept-Encoding");
+        }
+        if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), variant.etag())) {
+            notModified.increment();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return true;
+        }
+        if (!variant.encoding().equals("identity")) {
+            headers.set("Content-Encoding", variant.encoding());
+        }
+        exchange.sendResponseHeaders(200, variant.length());
+        try (OutputStream os = exchange.getResponseBody()) {
+            if (variant.bytes() != null) {
+                os.write(variant.bytes());
+            } else {
+                transfer(variant.file(), variant.length(), os);
+            }
+        }
+        return true;
+    }
+
+    private Variant choose(Asset asset, String acceptEncoding) {
+        if (asset.encodings().length > 0 && acceptEncoding != null) {
+            String encoding = ResponseCompression.preferred(acceptEncoding, asset.encodings());
+            if (encoding != null) {
+                return asset.variants().get(encoding);
+            }
+        }
+        return asset.identity();
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        int start = 0;
+        while (start < ifNoneMatch.length()) {
+            int end = ifNoneMatch.indexOf(',', start);
+            if (end < 0) {
+                end = ifNoneMatch.length();
+            }
+            String candidate = ifNoneMatch.substring(start, end).trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
+
+    private static void transfer(Path file, long length, OutputStream os) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(os);
+            long position = 0;
+            while (position < length) {
+                long sent = channel.transferTo(position, length - position, target);
+                if (sent <= 0) {
+                    break;
+                }
+                position += sent;
+            }
+        }
+    }
+
+    private void reindex() {
+        if (!Files.isDirectory(root)) {
+            index = Map.of();
+            memoryBytes = 0;
+            return;
+        }
+        Map<String, Asset> next = new HashMap<>();
+        long inMemory = 0;
+        try (Stream<Path> files = Files.walk(root)) {
+            for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(".gz") || name.endsWith(".br")) {
+                    continue;
+                }
+                Asset asset = load(file);
+                for (Variant variant : asset.variants().values()) {
+                    inMemory += variant.bytes() == null ? 0 : variant.bytes().length;
+                }
+                next.put(root.relativize(file).toString().replace('\\', '/'), asset);
+            }
+        } catch (IOException e) {
+            Log.error("static.index_failed", e, "root", root);
+            return;
+        }
+        index = Map.copyOf(next);
+        memoryBytes = inMemory;
+        reindexed.increment();
+        Log.info("static.indexed", "root", root, "files", next.size(), "memory_bytes", inMemory);
+    }
+
+    private Asset load(Path file) throws IOException {
+        String contentType = contentTypeFor(file.getFileName().toString());
+        String relative = root.relativize(file).toString().replace('\\', '/');
+        boolean immutable = relative.startsWith("assets/") && HASHED_NAME.matcher(file.getFileName().toString()).matches();
+        Map<String, Variant> variants = new HashMap<>();
+        Variant identity = variant("identity", file);
+        variants.put("identity", identity);
+        Path brotli = Path.of(file + ".br");
+        if (Files.isRegularFile(brotli)) {
+            variants.put(ResponseCompression.BROTLI, variant(ResponseCompression.BROTLI, brotli));
+        }
+        Path gzip = Path.of(file + ".gz");
+        if (Files.isRegularFile(gzip)) {
+            variants.put(ResponseCompression.GZIP, variant(ResponseCompression.GZIP, gzip));
+        } else if (identity.bytes() != null) {
+            addGzip(variants, contentType, identity.bytes());
+        }
+        return asset(contentType, immutable, variants);
+    }
+
+    private static Asset asset(String contentType, boolean immutable, Map<String, Variant> variants) {
+        String[] encodings = variants.keySet().stream().filter(e -> !e.equals("identity")).sorted().toArray(String[]::new);
+        return new Asset(contentType, immutable, Map.copyOf(variants), encodings);
+    }
+
+    private static void addGzip(Map<String, Variant> variants, String contentType, byte[] bytes) throws IOException {
+        if (bytes.length < 1024 || !ResponseCompression.isCompressible(contentType)) {
+            return;
+        }
+        byte[] compressed = gzip(bytes);
+        if (compressed.length < bytes.length) {
+            variants.put(ResponseCompression.GZIP, new Variant(ResponseCompression.GZIP, null, compressed.length,
+                    etag(compressed, ResponseCompression.GZIP), compressed));
+        }
+    }
+
+    private Variant variant(String encoding, Path file) throws IOException {
+        long length = Files.size(file);
+        if (length <= memoryMaxBytes) {
+            byte[] bytes = Files.readAllBytes(file);
+            return new Variant(encoding, file, bytes.length, etag(bytes, encoding), bytes);
+        }
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return new Variant(encoding, file, length, formatEtag(digest.digest(), encoding), null);
+    }
+
+    private static String etag(byte[] bytes, String encoding) {
+        return formatEtag(sha256().digest(bytes), encoding);
+    }
+
+    private static String formatEtag(byte[] digest, String encoding) {
+        String hash = Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 22);
+        return "\"" + hash + (encoding.equals("identity") ? "" : "-" + encoding) + "\"";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 3);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private void watch() {
+        try (WatchService service = FileSystems.getDefault().newWatchService()) {
+            Map<WatchKey, Path> keys = new HashMap<>();
+            while (true) {
+                if (keys.isEmpty()) {
+                    Path target = Files.isDirectory(root) ? root : root.getParent();
+                    if (target == null || !Files.isDirectory(target)) {
+                        TimeUnit.SECONDS.sleep(5);
+                        continue;
+                    }
+                    register(service, target, keys);
+                }
+                WatchKey key = service.take();
+                TimeUnit.MILLISECONDS.sleep(200);
+                key.pollEvents();
+                while ((key = service.poll()) != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+                for (WatchKey registered : keys.keySet()) {
+                    registered.cancel();
+                }
+                keys.clear();
+                reindex();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | ClosedWatchServiceException e) {
+            Log.warn("static.watch_stopped", "root", root, "reason", e.toString());
+        }
+    }
+
+    private void register(WatchService service, Path target, Map<WatchKey, Path> keys) throws IOException {
+        List<Path> directories;
+        if (target.equals(root)) {
+            try (Stream<Path> walk = Files.walk(root)) {
+                directories = walk.filter(Files::isDirectory).toList();
+            }
+        } else {
+            directories = List.of(target);
+        }
+        for (Path directory : directories) {
+            keys.put(directory.register(service,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY), directory);
+        }
+    }
+
+    static String contentTypeFor(String fileName) {
+        String name = fileName.toLowerCase();
+        if (name.endsWith(".html")) return "text/html; charset=utf-8";
+        if (name.endsWith(".js") || name.endsWith(".mjs")) return "text/javascript; charset=utf-8";
+        if (name.endsWith(".css")) return "text/css; charset=utf-8";
+        if (name.endsWith(".svg")) return "image/svg+xml";
+        if (name.endsWith(".png")) return "image/png";
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) return "image/jpeg";
+        if (name.endsWith(".webp")) return "image/webp";
+        if (name.endsWith(".ico")) return "image/x-icon";
+        if (name.endsWith(".woff2")) return "font/woff2";
+        if (name.endsWith(".json") || name.endsWith(".map")) return "application/json; charset=utf-8";
+        return "application/octet-stream";
+    }
+}
@@ -0,0 +1,159 @@
+package app.db;
+
+import app.metrics.MetricsRegistry;
+import app.model.DiagnosisSession;
+import app.model.OutboxEmail;
+import app.model.Patient;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CachingDatabase extends ForwardingDatabase {
+    private record PatientList(String doctor, long generation, String cursor, int limit) {}
+
+    private final TinyLfuCache<UUID, Optional<Patient>> patients;
+    private final TinyLfuCache<PatientList, Page<Patient>> patientLists;
+    private final TinyLfuCache<UUID, List<DiagnosisSession>> sessions;
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    public CachingDatabase(Database delegate, int maxEntries, MetricsRegistry metrics) {
+        super(delegate);
+        this.patients = cache("patient", maxEntries, metrics);
+        this.patientLists = cache("patient_list", maxEntries, metrics);
+        this.sessions = cache("diagnosis_sessions", maxEntries, metrics);
+        metrics.gauge("db_cache_entries", MetricsRegistry.label("cache", "patient"), "Entries held in the database read cache.", patients::size);
+        metrics.gauge("db_cache_entries", MetricsRegistry.label("cache", "patient_list"), "Entries held in the database read cache.", patientLists::size);
+        metrics.gauge("db_cache_entries", MetricsRegistry.label("cache", "diagnosis_sessions"), "Entries held in the database read cache.", sessions::size);
+    }
+
+    @Override
+    public void savePatient(Patient patient) {
+        delegate.savePatient(patient);
+        patients.invalidate(patient.id());
+        changed(patient.doctorUsername());
+    }
+
+    @Override
+    public void savePatients(List<Patient> patients) {
+        delegate.savePatients(patients);
+        Set<String> doctors = new HashSet<>();
+        for (Patient patient : patients) {
+            this.patients.invalidate(patient.id());
+            doctors.add(patient.doctorUsername());
+        }
+        doctors.forEach(this::changed);
+    }
+
+    @Override
+    public void updatePatient(Patient patient) {
+        Optional<Patient> previous = getPatient(patient.id());
+        delegate.updatePatient(patient);
+        patients.invalidate(patient.id());
+        previous.map(Patient::doctorUsername).ifPresent(this::changed);
+        changed(patient.doctorUsername());
+    }
+
+    @Override
+    public void deletePatient(UUID id) {
+        Optional<Patient> previous = getPatient(id);
+        delegate.deletePatient(id);
+        patients.invalidate(id);
+        sessions.invalidate(id);
+        previous.map(Patient::doctorUsername).ifPresent(this::changed);
+    }
+
+    @Override
+    public Optional<Patient> getPatient(UUID id) {
+        return patients.get(id, delegate::getPatient);
+    }
+
+    @Override
+    public List<Patient> getPatientsByDoctor(String username) {
+        return patientLists.get(new PatientList(username, generation(username), null, -1),
+                key -> new Page<>(List.copyOf(delegate.getPatientsByDoctor(username)), null)).items();
+    }
+
+    @Override
+    public Page<Patient> getPatientsByDoctor(String username, String cursor, int limit) {
+        return patientLists.get(new PatientList(username, generation(username), cursor, limit),
+                key -> delegate.getPatientsByDoctor(username, cursor, limit));
+    }
+
+    @Override
+    public void saveDiagnosisSession(DiagnosisSession session) {
+        delegate.saveDiagnosisSession(session);
+        sessions.invalidate(session.patientId());
+    }
+
+    @Override
+    public void saveDiagnosisSessions(List<DiagnosisSession> sessions) {
+        delegate.saveDiagnosisSessions(sessions);
+        for (DiagnosisSession session : sessions) {
+            this.sessions.invalidate(session.patientId());
+        }
+    }
+
+    @Override
+    public void savePrescription(DiagnosisSession session, OutboxEmail email) {
+        delegate.savePrescription(session, email);
+        sessions.invalidate(session.patientId());
+    }
+
+    @Override
+    public List<DiagnosisSession> getDiagnosisSessions(UUID patientId) {
+        return sessions.get(patientId, delegate::getDiagnosisSessions);
+    }
+
+    @Override
+    public Map<UUID, List<DiagnosisSession>> getDiagnosisSessions(Collection<UUID> patientIds) {
+        Map<UUID, List<DiagnosisSession>> result = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        for (UUID patientId : patientIds) {
+            List<DiagnosisSession> cached = sessions.getIfPresent(patientId);
+            if (cached == null) {
+                missing.add(patientId);
+            } else if (!cached.isEmpty()) {
+                result.put(patientId, cached);
+            }
+        }
+        if (!missing.isEmpty()) {
+            long stamp = sessions.stamp();
+            Map<UUID, List<DiagnosisSession>> loaded = delegate.getDiagnosisSessions(missing);
+            for (UUID patientId : missing) {
+                List<DiagnosisSession> list = loaded.getOrDefault(patientId, List.of());
+                sessions.put(patientId, list, stamp);
+                if (!list.isEmpty()) {
+                    result.put(patientId, list);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    private long generation(String doctor) {
+        return doctor == null ? 0 : generations.getOrDefault(doctor, 0L);
+    }
+
+    private void changed(String doctor) {
+        if (doctor != null) {
+            generations.merge(doctor, 1L, Long::sum);
+        }
+    }
+
+    private static <K, V> TinyLfuCache<K, V> cache(String name, int maxEntries, MetricsRegistry metrics) {
+        String labels = MetricsRegistry.label("cache", name);
+        return new TinyLfuCache<>(maxEntries,
+                metrics.counter("db_cache_hits_total", labels, "Database reads answered from the read cache."),
+                metrics.counter("db_cache_misses_total", labels, "Database reads that went to storage."),
+                metrics.counter("db_cache_evictions_total", labels, "Entries evicted from the database read cache."));
+    }
+}
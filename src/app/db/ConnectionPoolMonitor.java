@@ -0,0 +1,105 @@
+package app.db;
+
+import app.log.Log;
+import app.metrics.LatencyHistogram;
+import app.metrics.MetricsRegistry;
+import com.zaxxer.hikari.HikariConfigMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+final class ConnectionPoolMonitor implements MetricsTrackerFactory {
+    private static final double GROW_WAIT_RATIO = 0.2;
+    private static final double SHRINK_WAIT_RATIO = 0.02;
+    private static final double SHRINK_UTILISATION = 0.5;
+
+    private final MetricsRegistry metrics;
+    private final LatencyHistogram acquireLatency;
+    private final LatencyHistogram usageLatency;
+    private final LongAdder timeouts;
+    private final LongAdder resizes;
+    private final LongAdder windowAcquireNanos = new LongAdder();
+    private final LongAdder windowUsageMillis = new LongAdder();
+    private final LongAdder windowTimeouts = new LongAdder();
+
+    ConnectionPoolMonitor(MetricsRegistry metrics) {
+        this.metrics = metrics;
+        this.acquireLatency = metrics.histogram("db_pool_acquire_duration_seconds", "Time spent waiting for a pooled connection.");
+        this.usageLatency = metrics.histogram("db_pool_usage_duration_seconds", "Time a pooled connection was held before being returned.");
+        this.timeouts = metrics.counter("db_pool_timeouts_total", "Connection requests that timed out waiting for the pool.");
+        this.resizes = metrics.counter("db_pool_resizes_total", "Adaptive changes to the maximum pool size.");
+    }
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats stats) {
+        metrics.gauge("db_pool_connections", MetricsRegistry.label("state", "active"), "Pooled connections by state.", stats::getActiveConnections);
+        metrics.gauge("db_pool_connections", MetricsRegistry.label("state", "idle"), "Pooled connections by state.", stats::getIdleConnections);
+        metrics.gauge("db_pool_connections", MetricsRegistry.label("state", "total"), "Pooled connections by state.", stats::getTotalConnections);
+        metrics.gauge("db_pool_pending_threads", "Threads waiting for a pooled connection.", stats::getPendingThreads);
+        metrics.gauge("db_pool_max_connections", "Current maximum pool size.", stats::getMaxConnections);
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquireLatency.recordNanos(elapsedAcquiredNanos);
+                windowAcquireNanos.add(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usageLatency.recordNanos(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+                windowUsageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+                windowTimeouts.increment();
+            }
+        };
+    }
+
+    void adapt(HikariConfigMXBean pool, int minSize, int maxSize, long intervalMillis) {
+        Thread tuner = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    resize(pool, minSize, maxSize, intervalMillis);
+                } catch (RuntimeException e) {
+                    Log.error("db.pool.resize_failed", e);
+                }
+            }
+        }, "db-pool-tuner");
+        tuner.setDaemon(true);
+        tuner.start();
+    }
+
+    private void resize(HikariConfigMXBean pool, int minSize, int maxSize, long intervalMillis) {
+        long waitNanos = windowAcquireNanos.sumThenReset();
+        long usageNanos = TimeUnit.MILLISECONDS.toNanos(windowUsageMillis.sumThenReset());
+        long timedOut = windowTimeouts.sumThenReset();
+        int size = pool.getMaximumPoolSize();
+        double waitRatio = usageNanos == 0 ? 0 : (double) waitNanos / usageNanos;
+        double utilisation = (double) usageNanos / (TimeUnit.MILLISECONDS.toNanos(intervalMillis) * (double) size);
+        int next = size;
+        if ((timedOut > 0 || waitRatio > GROW_WAIT_RATIO) && size < maxSize) {
+            next = Math.min(maxSize, size + Math.max(1, size / 4));
+        } else if (waitRatio < SHRINK_WAIT_RATIO && utilisation < SHRINK_UTILISATION && size > minSize) {
+            next = size - 1;
+        }
+        if (next != size) {
+            pool.setMaximumPoolSize(next);
+            resizes.increment();
+            Log.info("db.pool.resize", "from", size, "to", next,
+                    "wait_ratio", String.format("%.3f", waitRatio),
+                    "utilisation", String.format("%.3f", utilisation),
+                    "timeouts", timedOut);
+        }
+    }
+}
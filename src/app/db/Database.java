@@ -2,9 +2,13 @@ package app.db;
 
 import app.model.DiagnosisSession;
 import app.model.Doctor;
+import app.model.OutboxEmail;
 import app.model.Patient;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -15,6 +19,8 @@ public interface Database {
 
     void savePatient(Patient patient);
 
+    void savePatients(List<Patient> patients);
+
     void updatePatient(Patient patient);
 
     void deletePatient(UUID id);
@@ -25,9 +31,33 @@ public interface Database {
 
     List<Patient> getPatientsByDoctor(String username);
 
+    Page<Patient> getPatients(String cursor, int limit);
+
+    Page<Patient> getPatientsByDoctor(String username, String cursor, int limit);
+
+    Page<Patient> searchPatients(String username, String term, String cursor, int limit);
+
     List<Doctor> getDoctors();
 
     void saveDiagnosisSession(DiagnosisSession session);
 
+    void saveDiagnosisSessions(List<DiagnosisSession> sessions);
+
+    void savePrescription(DiagnosisSession session, OutboxEmail email);
+
     List<DiagnosisSession> getDiagnosisSessions(UUID patientId);
+
+    Map<UUID, List<DiagnosisSession>> getDiagnosisSessions(Collection<UUID> patientIds);
+
+    List<PatientTally> getPatientTallies();
+
+    List<OutboxEmail> claimOutboxEmails(int limit, LocalDateTime now, LocalDateTime leaseUntil);
+
+    void markOutboxSent(Collection<UUID> ids, LocalDateTime sentAt);
+
+    void rescheduleOutboxEmail(UUID id, LocalDateTime nextAttemptAt, String error);
+
+    void deadLetterOutboxEmail(UUID id, String error);
+
+    Map<String, Long> getOutboxCounts();
 }
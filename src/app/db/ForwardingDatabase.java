@@ -0,0 +1,141 @@
+package app.db;
+
+import app.model.DiagnosisSession;
+import app.model.Doctor;
+import app.model.OutboxEmail;
+import app.model.Patient;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+public abstract class ForwardingDatabase implements Database {
+    protected final Database delegate;
+
+    protected ForwardingDatabase(Database delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Optional<Doctor> getDoctor(String username) {
+        return delegate.getDoctor(username);
+    }
+
+    @Override
+    public void saveDoctor(Doctor doctor) {
+        delegate.saveDoctor(doctor);
+    }
+
+    @Override
+    public void savePatient(Patient patient) {
+        delegate.savePatient(patient);
+    }
+
+    @Override
+    public void savePatients(List<Patient> patients) {
+        delegate.savePatients(patients);
+    }
+
+    @Override
+    public void updatePatient(Patient patient) {
+        delegate.updatePatient(patient);
+    }
+
+    @Override
+    public void deletePatient(UUID id) {
+        delegate.deletePatient(id);
+    }
+
+    @Override
+    public Optional<Patient> getPatient(UUID id) {
+        return delegate.getPatient(id);
+    }
+
+    @Override
+    public List<Patient> getPatients() {
+        return delegate.getPatients();
+    }
+
+    @Override
+    public List<Patient> getPatientsByDoctor(String username) {
+        return delegate.getPatientsByDoctor(username);
+    }
+
+    @Override
+    public Page<Patient> getPatients(String cursor, int limit) {
+        return delegate.getPatients(cursor, limit);
+    }
+
+    @Override
+    public Page<Patient> getPatientsByDoctor(String username, String cursor, int limit) {
+        return delegate.getPatientsByDoctor(username, cursor, limit);
+    }
+
+    @Override
+    public Page<Patient> searchPatients(String username, String term, String cursor, int limit) {
+        return delegate.searchPatients(username, term, cursor, limit);
+    }
+
+    @Override
+    public List<Doctor> getDoctors() {
+        return delegate.getDoctors();
+    }
+
+    @Override
+    public void saveDiagnosisSession(DiagnosisSession session) {
+        delegate.saveDiagnosisSession(session);
+    }
+
+    @Override
+    public void saveDiagnosisSessions(List<DiagnosisSession> sessions) {
+        delegate.saveDiagnosisSessions(sessions);
+    }
+
+    @Override
+    public void savePrescription(DiagnosisSession session, OutboxEmail email) {
+        delegate.savePrescription(session, email);
+    }
+
+    @Override
+    public List<DiagnosisSession> getDiagnosisSessions(UUID patientId) {
+        return delegate.getDiagnosisSessions(patientId);
+    }
+
+    @Override
+    public Map<UUID, List<DiagnosisSession>> getDiagnosisSessions(Collection<UUID> patientIds) {
+        return delegate.getDiagnosisSessions(patientIds);
+    }
+
+    @Override
+    public List<PatientTally> getPatientTallies() {
+        return delegate.getPatientTallies();
+    }
+
+    @Override
+    public List<OutboxEmail> claimOutboxEmails(int limit, LocalDateTime now, LocalDateTime leaseUntil) {
+        return delegate.claimOutboxEmails(limit, now, leaseUntil);
+    }
+
+    @Override
+    public void markOutboxSent(Collection<UUID> ids, LocalDateTime sentAt) {
+        delegate.markOutboxSent(ids, sentAt);
+    }
+
+    @Override
+    public void rescheduleOutboxEmail(UUID id, LocalDateTime nextAttemptAt, String error) {
+        delegate.rescheduleOutboxEmail(id, nextAttemptAt, error);
+    }
+
+    @Override
+    public void deadLetterOutboxEmail(UUID id, String error) {
+        delegate.deadLetterOutboxEmail(id, error);
+    }
+
+    @Override
+    public Map<String, Long> getOutboxCounts() {
+        return delegate.getOutboxCounts();
+    }
+}
@@ -0,0 +1,141 @@
+package app.db;
+
+import app.log.Log;
+import app.metrics.LatencyHistogram;
+import app.metrics.MetricsRegistry;
+import app.model.DiagnosisSession;
+import app.util.OverloadedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class GroupCommitDatabase extends ForwardingDatabase {
+    private record PendingSession(DiagnosisSession session, CompletableFuture<Void> durable, long enqueuedNanos) {}
+
+    private final BlockingQueue<PendingSession> queue;
+    private final int maxBatch;
+    private final long lingerNanos;
+    private final long enqueueTimeoutMillis;
+    private final LongAdder batches;
+    private final LongAdder written;
+    private final LongAdder rejected;
+    private final LongAdder failed;
+    private final LatencyHistogram commitLatency;
+    private final LatencyHistogram ackLatency;
+
+    public GroupCommitDatabase(Database delegate, int queueCapacity, int maxBatch, long lingerMillis,
+                               long enqueueTimeoutMillis, MetricsRegistry metrics) {
+        super(delegate);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatch = Math.max(1, maxBatch);
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, lingerMillis));
+        this.enqueueTimeoutMillis = Math.max(0, enqueueTimeoutMillis);
+        this.batches = metrics.counter("diagnosis_write_batches_total", "Group commits of diagnosis sessions.");
+        this.written = metrics.counter("diagnosis_write_sessions_total", "Diagnosis sessions made durable by group commit.");
+        this.rejected = metrics.counter("diagnosis_write_rejected_total", "Diagnosis sessions refused because the write queue stayed full.");
+        this.failed = metrics.counter("diagnosis_write_failed_total", "Diagnosis sessions whose write failed.");
+        this.commitLatency = metrics.histogram("diagnosis_write_commit_duration_seconds", "Time to write one group-commit batch.");
+        this.ackLatency = metrics.histogram("diagnosis_write_ack_duration_seconds", "Time from enqueue until a diagnosis session is durable.");
+        metrics.gauge("diagnosis_write_queue_depth", "Diagnosis sessions waiting for the next group commit.", queue::size);
+        Thread writer = new Thread(this::writeLoop, "diagnosis-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void saveDiagnosisSession(DiagnosisSession session) {
+        PendingSession pending = new PendingSession(session, new CompletableFuture<>(), System.nanoTime());
+        try {
+            if (!queue.offer(pending, enqueueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                throw new OverloadedException("Failed to queue diagnosis session: write queue is full", 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to queue diagnosis session", e);
+        }
+        try {
+            pending.durable().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RuntimeException("Failed to save diagnosis session", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<PendingSession> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatch - batch.size());
+                long deadline = System.nanoTime() + lingerNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingSession next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                    queue.drainTo(batch, maxBatch - batch.size());
+                }
+                commit(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                Log.error("diagnosis.write_loop_failed", e);
+            } finally {
+                for (PendingSession pending : batch) {
+                    if (!pending.durable().isDone()) {
+                        failed.increment();
+                        pending.durable().completeExceptionally(new RuntimeException("Failed to save diagnosis session: batch was not written"));
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingSession> batch) {
+        List<DiagnosisSession> sessions = new ArrayList<>(batch.size());
+        for (PendingSession pending : batch) {
+            sessions.add(pending.session());
+        }
+        long start = System.nanoTime();
+        try {
+            delegate.saveDiagnosisSessions(sessions);
+            commitLatency.recordNanos(System.nanoTime() - start);
+            batches.increment();
+            for (PendingSession pending : batch) {
+                acknowledge(pending);
+            }
+        } catch (RuntimeException e) {
+            Log.warn("diagnosis.batch_failed", "sessions", batch.size(), "error", e.getMessage());
+            for (PendingSession pending : batch) {
+                try {
+                    delegate.saveDiagnosisSession(pending.session());
+                    acknowledge(pending);
+                } catch (RuntimeException single) {
+                    failed.increment();
+                    pending.durable().completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private void acknowledge(PendingSession pending) {
+        written.increment();
+        ackLatency.recordNanos(System.nanoTime() - pending.enqueuedNanos());
+        pending.durable().complete(null);
+    }
+}
@@ -2,20 +2,44 @@ package app.db;
 
 import app.model.DiagnosisSession;
 import app.model.Doctor;
+import app.model.OutboxEmail;
 import app.model.Patient;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public class InMemoryDatabase implements Database {
     private final Map<String, Doctor> doctors = new ConcurrentHashMap<>();
     private final Map<UUID, Patient> patients = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<PatientCursor, Patient> patientsByName = new ConcurrentSkipListMap<>(PatientCursor.ORDER);
+    private final Map<String, ConcurrentSkipListMap<PatientCursor, Patient>> patientsByDoctor = new ConcurrentHashMap<>();
     private final Map<UUID, List<DiagnosisSession>> sessionsByPatient = new ConcurrentHashMap<>();
+    private final Map<UUID, OutboxEntry> outbox = new LinkedHashMap<>();
+
+    private static final class OutboxEntry {
+        private final OutboxEmail email;
+        private String status = "pending";
+        private int attempts;
+        private LocalDateTime nextAttemptAt;
+        private String lastError;
+
+        OutboxEntry(OutboxEmail email) {
+            this.email = email;
+            this.nextAttemptAt = email.createdAt();
+        }
+    }
 
     public Optional<Doctor> getDoctor(String username) {
         return Optional.ofNullable(doctors.get(username));
@@ -25,16 +49,26 @@ public class InMemoryDatabase implements Database {
         doctors.put(doctor.username(), doctor);
     }
 
-    public void savePatient(Patient patient) {
-        patients.put(patient.id(), patient);
+    public synchronized void savePatient(Patient patient) {
+        index(patients.put(patient.id(), patient), patient);
+    }
+
+    @Override
+    public synchronized void savePatients(List<Patient> patients) {
+        for (Patient patient : patients) {
+            index(this.patients.put(patient.id(), patient), patient);
+        }
     }
 
-    public void updatePatient(Patient patient) {
-        patients.put(patient.id(), patient);
+    public synchronized void updatePatient(Patient patient) {
+        Patient previous = patients.replace(patient.id(), patient);
+        if (previous != null) {
+            index(previous, patient);
+        }
     }
 
-    public void deletePatient(UUID id) {
-        patients.remove(id);
+    public synchronized void deletePatient(UUID id) {
+        index(patients.remove(id), null);
         sessionsByPatient.remove(id);
     }
 
@@ -43,21 +77,39 @@ public class InMemoryDatabase implements Database {
     }
 
     public List<Patient> getPatients() {
-        List<Patient> list = new ArrayList<>(patients.values());
-        list.sort((a, b) -> a.name().compareToIgnoreCase(b.name()));
-        return Collections.unmodifiableList(list);
+        return List.copyOf(patientsByName.values());
     }
 
     @Override
     public List<Patient> getPatientsByDoctor(String username) {
-        List<Patient> list = new ArrayList<>();
-        for (Patient patient : patients.values()) {
-            if (username.equals(patient.doctorUsername())) {
-                list.add(patient);
-            }
+        NavigableMap<PatientCursor, Patient> index = patientsByDoctor.get(username);
+        return index == null ? List.of() : List.copyOf(index.values());
+    }
+
+    @Override
+    public Page<Patient> getPatients(String cursor, int limit) {
+        return page(patientsByName, cursor, limit);
+    }
+
+    @Override
+    public Page<Patient> getPatientsByDoctor(String username, String cursor, int limit) {
+        NavigableMap<PatientCursor, Patient> index = patientsByDoctor.get(username);
+        return index == null ? new Page<>(List.of(), null) : page(index, cursor, limit);
+    }
+
+    @Override
+    public Page<Patient> searchPatients(String username, String term, String cursor, int limit) {
+        SearchCursor after = SearchCursor.decode(cursor);
+        NavigableMap<PatientCursor, Patient> index = patientsByDoctor.get(username);
+        PatientSearch.Query query = PatientSearch.Query.of(term);
+        if (index == null || query.isEmpty()) {
+            return new Page<>(List.of(), null);
         }
-        list.sort((a, b) -> a.name().compareToIgnoreCase(b.name()));
-        return Collections.unmodifiableList(list);
+        PatientSearch.TopMatches matches = new PatientSearch.TopMatches(after, limit);
+        for (Patient patient : index.values()) {
+            matches.offer(patient, PatientSearch.rank(query, patient));
+        }
+        return matches.page();
     }
 
     @Override
@@ -71,9 +123,150 @@ public class InMemoryDatabase implements Database {
         sessionsByPatient.computeIfAbsent(session.patientId(), k -> Collections.synchronizedList(new ArrayList<>())).add(session);
     }
 
+    @Override
+    public void saveDiagnosisSessions(List<DiagnosisSession> sessions) {
+        for (DiagnosisSession session : sessions) {
+            saveDiagnosisSession(session);
+        }
+    }
+
+    @Override
+    public void savePrescription(DiagnosisSession session, OutboxEmail email) {
+        synchronized (outbox) {
+            saveDiagnosisSession(session);
+            outbox.put(email.id(), new OutboxEntry(email));
+        }
+    }
+
     public List<DiagnosisSession> getDiagnosisSessions(UUID patientId) {
         List<DiagnosisSession> list = new ArrayList<>(sessionsByPatient.getOrDefault(patientId, List.of()));
         list.sort((a, b) -> b.createdAt().compareTo(a.createdAt()));
         return List.copyOf(list);
     }
+
+    @Override
+    public Map<UUID, List<DiagnosisSession>> getDiagnosisSessions(Collection<UUID> patientIds) {
+        Map<UUID, List<DiagnosisSession>> result = new HashMap<>();
+        for (UUID patientId : patientIds) {
+            List<DiagnosisSession> sessions = sessionsByPatient.get(patientId);
+            if (sessions == null || result.containsKey(patientId)) {
+                continue;
+            }
+            List<DiagnosisSession> list = new ArrayList<>(sessions);
+            list.sort((a, b) -> b.createdAt().compareTo(a.createdAt()));
+            result.put(patientId, List.copyOf(list));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public synchronized List<PatientTally> getPatientTallies() {
+        Map<List<String>, long[]> tallies = new HashMap<>();
+        for (Patient patient : patients.values()) {
+            long[] tally = tallies.computeIfAbsent(Arrays.asList(patient.doctorUsername(), patient.deliveryStatus()), k -> new long[2]);
+            tally[0]++;
+            tally[1] += sessionsByPatient.getOrDefault(patient.id(), List.of()).size();
+        }
+        List<PatientTally> result = new ArrayList<>(tallies.size());
+        tallies.forEach((key, tally) -> result.add(new PatientTally(key.get(0), key.get(1), tally[0], tally[1])));
+        return List.copyOf(result);
+    }
+
+    @Override
+    public List<OutboxEmail> claimOutboxEmails(int limit, LocalDateTime now, LocalDateTime leaseUntil) {
+        synchronized (outbox) {
+            List<OutboxEntry> due = new ArrayList<>();
+            for (OutboxEntry entry : outbox.values()) {
+                if (entry.status.equals("pending") && !entry.nextAttemptAt.isAfter(now)) {
+                    due.add(entry);
+                }
+            }
+            due.sort((a, b) -> a.nextAttemptAt.compareTo(b.nextAttemptAt));
+            List<OutboxEmail> claimed = new ArrayList<>(Math.min(limit, due.size()));
+            for (OutboxEntry entry : due.subList(0, Math.min(limit, due.size()))) {
+                entry.nextAttemptAt = leaseUntil;
+                OutboxEmail email = entry.email;
+                claimed.add(new OutboxEmail(email.id(), email.recipient(), email.subject(), email.body(), entry.attempts, email.createdAt()));
+            }
+            return List.copyOf(claimed);
+        }
+    }
+
+    @Override
+    public void markOutboxSent(Collection<UUID> ids, LocalDateTime sentAt) {
+        synchronized (outbox) {
+            for (UUID id : ids) {
+                outbox.remove(id);
+            }
+        }
+    }
+
+    @Override
+    public void rescheduleOutboxEmail(UUID id, LocalDateTime nextAttemptAt, String error) {
+        synchronized (outbox) {
+            OutboxEntry entry = outbox.get(id);
+            if (entry != null) {
+                entry.attempts++;
+                entry.nextAttemptAt = nextAttemptAt;
+                entry.lastError = error;
+            }
+        }
+    }
+
+    @Override
+    public void deadLetterOutboxEmail(UUID id, String error) {
+        synchronized (outbox) {
+            OutboxEntry entry = outbox.get(id);
+            if (entry != null) {
+                entry.attempts++;
+                entry.status = "dead";
+                entry.lastError = error;
+            }
+        }
+    }
+
+    @Override
+    public Map<String, Long> getOutboxCounts() {
+        synchronized (outbox) {
+            Map<String, Long> counts = new HashMap<>();
+            for (OutboxEntry entry : outbox.values()) {
+                counts.merge(entry.status, 1L, Long::sum);
+            }
+            return Map.copyOf(counts);
+        }
+    }
+
+    private void index(Patient previous, Patient current) {
+        if (previous != null) {
+            PatientCursor key = PatientCursor.of(previous);
+            patientsByName.remove(key);
+            if (previous.doctorUsername() != null) {
+                patientsByDoctor.computeIfPresent(previous.doctorUsername(), (k, index) -> {
+                    index.remove(key);
+                    return index.isEmpty() ? null : index;
+                });
+            }
+        }
+        if (current != null) {
+            PatientCursor key = PatientCursor.of(current);
+            patientsByName.put(key, current);
+            if (current.doctorUsername() != null) {
+                patientsByDoctor.computeIfAbsent(current.doctorUsername(), k -> new ConcurrentSkipListMap<>(PatientCursor.ORDER))
+                        .put(key, current);
+            }
+        }
+    }
+
+    private static Page<Patient> page(NavigableMap<PatientCursor, Patient> index, String cursor, int limit) {
+        PatientCursor after = PatientCursor.decode(cursor);
+        NavigableMap<PatientCursor, Patient> tail = after == null ? index : index.tailMap(after, false);
+        List<Patient> fetched = new ArrayList<>(limit + 1);
+        for (Patient patient : tail.values()) {
+            fetched.add(patient);
+            if (fetched.size() > limit) {
+                break;
+            }
+        }
+        return PatientCursor.page(fetched, limit);
+    }
 }
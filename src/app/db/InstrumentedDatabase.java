@@ -0,0 +1,225 @@
+package app.db;
+
+import app.metrics.LatencyHistogram;
+import app.metrics.MetricsRegistry;
+import app.model.DiagnosisSession;
+import app.model.Doctor;
+import app.model.OutboxEmail;
+import app.model.Patient;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+public class InstrumentedDatabase extends ForwardingDatabase {
+    private record Operation(LatencyHistogram latency, LongAdder rows, LongAdder errors) {}
+
+    private final Operation getDoctor;
+    private final Operation saveDoctor;
+    private final Operation savePatient;
+    private final Operation savePatients;
+    private final Operation updatePatient;
+    private final Operation deletePatient;
+    private final Operation getPatient;
+    private final Operation getPatients;
+    private final Operation getPatientsByDoctor;
+    private final Operation getPatientsPage;
+    private final Operation getPatientsByDoctorPage;
+    private final Operation searchPatients;
+    private final Operation getDoctors;
+    private final Operation saveDiagnosisSession;
+    private final Operation saveDiagnosisSessions;
+    private final Operation getDiagnosisSessions;
+    private final Operation getDiagnosisSessionsBatch;
+    private final Operation getPatientTallies;
+    private final Operation savePrescription;
+    private final Operation claimOutboxEmails;
+    private final Operation markOutboxSent;
+    private final Operation rescheduleOutboxEmail;
+    private final Operation deadLetterOutboxEmail;
+    private final Operation getOutboxCounts;
+
+    public InstrumentedDatabase(Database delegate, MetricsRegistry metrics) {
+        super(delegate);
+        this.getDoctor = operation(metrics, "get_doctor");
+        this.saveDoctor = operation(metrics, "save_doctor");
+        this.savePatient = operation(metrics, "save_patient");
+        this.savePatients = operation(metrics, "save_patients");
+        this.updatePatient = operation(metrics, "update_patient");
+        this.deletePatient = operation(metrics, "delete_patient");
+        this.getPatient = operation(metrics, "get_patient");
+        this.getPatients = operation(metrics, "get_patients");
+        this.getPatientsByDoctor = operation(metrics, "get_patients_by_doctor");
+        this.getPatientsPage = operation(metrics, "get_patients_page");
+        this.getPatientsByDoctorPage = operation(metrics, "get_patients_by_doctor_page");
+        this.searchPatients = operation(metrics, "search_patients");
+        this.getDoctors = operation(metrics, "get_doctors");
+        this.saveDiagnosisSession = operation(metrics, "save_diagnosis_session");
+        this.saveDiagnosisSessions = operation(metrics, "save_diagnosis_sessions");
+        this.getDiagnosisSessions = operation(metrics, "get_diagnosis_sessions");
+        this.getDiagnosisSessionsBatch = operation(metrics, "get_diagnosis_sessions_batch");
+        this.getPatientTallies = operation(metrics, "get_patient_tallies");
+        this.savePrescription = operation(metrics, "save_prescription");
+        this.claimOutboxEmails = operation(metrics, "claim_outbox_emails");
+        this.markOutboxSent = operation(metrics, "mark_outbox_sent");
+        this.rescheduleOutboxEmail = operation(metrics, "reschedule_outbox_email");
+        this.deadLetterOutboxEmail = operation(metrics, "dead_letter_outbox_email");
+        this.getOutboxCounts = operation(metrics, "get_outbox_counts");
+    }
+
+    @Override
+    public Optional<Doctor> getDoctor(String username) {
+        return timed(getDoctor, () -> delegate.getDoctor(username), doctor -> doctor.isPresent() ? 1 : 0);
+    }
+
+    @Override
+    public void saveDoctor(Doctor doctor) {
+        timed(saveDoctor, () -> delegate.saveDoctor(doctor));
+    }
+
+    @Override
+    public void savePatient(Patient patient) {
+        timed(savePatient, () -> delegate.savePatient(patient));
+    }
+
+    @Override
+    public void savePatients(List<Patient> patients) {
+        timed(this.savePatients, () -> delegate.savePatients(patients));
+    }
+
+    @Override
+    public void updatePatient(Patient patient) {
+        timed(updatePatient, () -> delegate.updatePatient(patient));
+    }
+
+    @Override
+    public void deletePatient(UUID id) {
+        timed(deletePatient, () -> delegate.deletePatient(id));
+    }
+
+    @Override
+    public Optional<Patient> getPatient(UUID id) {
+        return timed(getPatient, () -> delegate.getPatient(id), patient -> patient.isPresent() ? 1 : 0);
+    }
+
+    @Override
+    public List<Patient> getPatients() {
+        return timed(getPatients, delegate::getPatients, List::size);
+    }
+
+    @Override
+    public List<Patient> getPatientsByDoctor(String username) {
+        return timed(getPatientsByDoctor, () -> delegate.getPatientsByDoctor(username), List::size);
+    }
+
+    @Override
+    public Page<Patient> getPatients(String cursor, int limit) {
+        return timed(getPatientsPage, () -> delegate.getPatients(cursor, limit), page -> page.items().size());
+    }
+
+    @Override
+    public Page<Patient> getPatientsByDoctor(String username, String cursor, int limit) {
+        return timed(getPatientsByDoctorPage, () -> delegate.getPatientsByDoctor(username, cursor, limit), page -> page.items().size());
+    }
+
+    @Override
+    public Page<Patient> searchPatients(String username, String term, String cursor, int limit) {
+        return timed(searchPatients, () -> delegate.searchPatients(username, term, cursor, limit), page -> page.items().size());
+    }
+
+    @Override
+    public List<Doctor> getDoctors() {
+        return timed(getDoctors, delegate::getDoctors, List::size);
+    }
+
+    @Override
+    public void saveDiagnosisSession(DiagnosisSession session) {
+        timed(saveDiagnosisSession, () -> delegate.saveDiagnosisSession(session));
+    }
+
+    @Override
+    public void saveDiagnosisSessions(List<DiagnosisSession> sessions) {
+        timed(saveDiagnosisSessions, () -> delegate.saveDiagnosisSessions(sessions));
+    }
+
+    @Override
+    public List<DiagnosisSession> getDiagnosisSessions(UUID patientId) {
+        return timed(getDiagnosisSessions, () -> delegate.getDiagnosisSessions(patientId), List::size);
+    }
+
+    @Override
+    public Map<UUID, List<DiagnosisSession>> getDiagnosisSessions(Collection<UUID> patientIds) {
+        return timed(getDiagnosisSessionsBatch, () -> delegate.getDiagnosisSessions(patientIds),
+                sessions -> sessions.values().stream().mapToInt(List::size).sum());
+    }
+
+    @Override
+    public List<PatientTally> getPatientTallies() {
+        return timed(getPatientTallies, delegate::getPatientTallies, List::size);
+    }
+
+    @Override
+    public void savePrescription(DiagnosisSession session, OutboxEmail email) {
+        timed(savePrescription, () -> delegate.savePrescription(session, email));
+    }
+
+    @Override
+    public List<OutboxEmail> claimOutboxEmails(int limit, LocalDateTime now, LocalDateTime leaseUntil) {
+        return timed(claimOutboxEmails, () -> delegate.claimOutboxEmails(limit, now, leaseUntil), List::size);
+    }
+
+    @Override
+    public void markOutboxSent(Collection<UUID> ids, LocalDateTime sentAt) {
+        timed(markOutboxSent, () -> delegate.markOutboxSent(ids, sentAt));
+    }
+
+    @Override
+    public void rescheduleOutboxEmail(UUID id, LocalDateTime nextAttemptAt, String error) {
+        timed(rescheduleOutboxEmail, () -> delegate.rescheduleOutboxEmail(id, nextAttemptAt, error));
+    }
+
+    @Override
+    public void deadLetterOutboxEmail(UUID id, String error) {
+        timed(deadLetterOutboxEmail, () -> delegate.deadLetterOutboxEmail(id, error));
+    }
+
+    @Override
+    public Map<String, Long> getOutboxCounts() {
+        return timed(getOutboxCounts, delegate::getOutboxCounts, Map::size);
+    }
+
+    private static <T> T timed(Operation operation, Supplier<T> call, ToIntFunction<? super T> rows) {
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            operation.rows().add(rows.applyAsInt(result));
+            return result;
+        } catch (RuntimeException e) {
+            operation.errors().increment();
+            throw e;
+        } finally {
+            operation.latency().recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private static void timed(Operation operation, Runnable call) {
+        timed(operation, () -> {
+            call.run();
+            return null;
+        }, result -> 0);
+    }
+
+    private static Operation operation(MetricsRegistry metrics, String name) {
+        String labels = MetricsRegistry.label("operation", name);
+        return new Operation(
+                metrics.histogram("db_operation_duration_seconds", labels, "Database operation latency."),
+                metrics.counter("db_operation_rows_total", labels, "Rows returned by database reads."),
+                metrics.counter("db_operation_errors_total", labels, "Database operations that failed."));
+    }
+}
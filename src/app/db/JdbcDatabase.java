@@ -1,13 +1,17 @@
 package app.db;
 
+import app.metrics.MetricsRegistry;
 import app.model.DiagnosisSession;
 import app.model.Doctor;
+import app.model.OutboxEmail;
 import app.model.Patient;
+import app.util.Env;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import org.flywaydb.core.Flyway;
 
 import java.nio.file.Path;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -15,14 +19,21 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import javax.sql.DataSource;
 
 public class JdbcDatabase implements Database {
+    private static final String PHONE_DIGITS = "regexp_replace(phone, '[^0-9]', '', 'g')";
+
     private final HikariDataSource dataSource;
 
-    public JdbcDatabase(String url, String user, String password) {
+    public JdbcDatabase(String url, String user, String password, MetricsRegistry metrics) {
         HikariConfig config = new HikariConfig();
         config.setJdbcUrl(url);
         if (user != null && !user.isBlank()) {
@@ -31,10 +42,25 @@ public class JdbcDatabase implements Database {
         if (password != null && !password.isBlank()) {
             config.setPassword(password);
         }
-        config.setMaximumPoolSize(5);
+        int poolSize = Math.max(1, Env.intValue("DB_POOL_SIZE", 5));
+        int maxPoolSize = Math.max(poolSize, Env.intValue("DB_POOL_MAX", poolSize * 4));
+        boolean adaptive = Env.flag("DB_POOL_ADAPTIVE", false);
+        ConnectionPoolMonitor monitor = new ConnectionPoolMonitor(metrics);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(poolSize);
         config.setPoolName("own-doc-db");
+        config.setMetricsTrackerFactory(monitor);
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
         this.dataSource = new HikariDataSource(config);
         runMigrations();
+        if (adaptive) {
+            monitor.adapt(dataSource.getHikariConfigMXBean(), poolSize, maxPoolSize,
+                    Math.max(1000, Env.longValue("DB_POOL_ADJUST_INTERVAL_MS", 10000)));
+        }
+    }
+
+    DataSource dataSource() {
+        return dataSource;
     }
 
     private void runMigrations() {
@@ -89,22 +115,53 @@ public class JdbcDatabase implements Database {
         String sql = "insert into patients (id, name, email, phone, age, gender, address, notes, doctor_username, delivery_status) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setObject(1, patient.id());
-            ps.setString(2, patient.name());
-            ps.setString(3, patient.email());
-            ps.setString(4, patient.phone());
-            ps.setObject(5, patient.age());
-            ps.setString(6, patient.gender());
-            ps.setString(7, patient.address());
-            ps.setString(8, patient.notes());
-            ps.setString(9, patient.doctorUsername());
-            ps.setString(10, patient.deliveryStatus());
+            bindPatient(ps, patient);
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Failed to save patient", e);
         }
     }
 
+    @Override
+    public void savePatients(List<Patient> patients) {
+        if (patients.isEmpty()) {
+            return;
+        }
+        String sql = "insert into patients (id, name, email, phone, age, gender, address, notes, doctor_username, delivery_status) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (Patient patient : patients) {
+                    bindPatient(ps, patient);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save patients", e);
+        }
+    }
+
+    private static void bindPatient(PreparedStatement ps, Patient patient) throws SQLException {
+        ps.setObject(1, patient.id());
+        ps.setString(2, patient.name());
+        ps.setString(3, patient.email());
+        ps.setString(4, patient.phone());
+        ps.setObject(5, patient.age());
+        ps.setString(6, patient.gender());
+        ps.setString(7, patient.address());
+        ps.setString(8, patient.notes());
+        ps.setString(9, patient.doctorUsername());
+        ps.setString(10, patient.deliveryStatus());
+    }
+
     @Override
     public void updatePatient(Patient patient) {
         String sql = "update patients set name = ?, email = ?, phone = ?, age = ?, gender = ?, address = ?, notes = ?, doctor_username = ?, delivery_status = ? where id = ?";
@@ -189,6 +246,107 @@ public class JdbcDatabase implements Database {
         }
     }
 
+    @Override
+    public Page<Patient> getPatients(String cursor, int limit) {
+        PatientCursor after = PatientCursor.decode(cursor);
+        String sql = "select id, name, email, phone, age, gender, address, notes, doctor_username, delivery_status from patients"
+                + (after == null ? "" : " where (name, id) > (?, ?)")
+                + " order by name, id limit ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            if (after != null) {
+                ps.setString(index++, after.name());
+                ps.setObject(index++, after.id());
+            }
+            ps.setInt(index, limit + 1);
+            return PatientCursor.page(readPatients(ps), limit);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to page patients", e);
+        }
+    }
+
+    @Override
+    public Page<Patient> getPatientsByDoctor(String username, String cursor, int limit) {
+        PatientCursor after = PatientCursor.decode(cursor);
+        String sql = "select id, name, email, phone, age, gender, address, notes, doctor_username, delivery_status from patients where doctor_username = ?"
+                + (after == null ? "" : " and (name, id) > (?, ?)")
+                + " order by name, id limit ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            ps.setString(index++, username);
+            if (after != null) {
+                ps.setString(index++, after.name());
+                ps.setObject(index++, after.id());
+            }
+            ps.setInt(index, limit + 1);
+            return PatientCursor.page(readPatients(ps), limit);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to page patients by doctor", e);
+        }
+    }
+
+    @Override
+    public Page<Patient> searchPatients(String username, String term, String cursor, int limit) {
+        SearchCursor after = SearchCursor.decode(cursor);
+        PatientSearch.Query query = PatientSearch.Query.of(term);
+        if (query.isEmpty()) {
+            return new Page<>(List.of(), null);
+        }
+        boolean phone = !query.digits().isEmpty();
+        String contactPrefix = "lower(email) like ? escape '\\' or lower(phone) like ? escape '\\'"
+                + (phone ? " or " + PHONE_DIGITS + " like ?" : "");
+        String contains = "lower(name) like ? escape '\\' or lower(email) like ? escape '\\' or lower(phone) like ? escape '\\'"
+                + (phone ? " or " + PHONE_DIGITS + " like ?" : "");
+        String sql = "select * from (select id, name, email, phone, age, gender, address, notes, doctor_username, delivery_status,"
+                + " case when lower(name) = ? then 0"
+                + " when lower(name) like ? escape '\\' then 1"
+                + " when lower(name) like ? escape '\\' then 2"
+                + " when " + contactPrefix + " then 3"
+                + " else 4 end as search_rank"
+                + " from patients where doctor_username = ? and (" + contains + ")) matches"
+                + (after == null ? "" : " where (search_rank, name, id) > (?, ?, ?)")
+                + " order by search_rank, name, id limit ?";
+        String needle = likeEscape(query.needle());
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            int index = 1;
+            ps.setString(index++, query.needle());
+            ps.setString(index++, needle + "%");
+            ps.setString(index++, "% " + needle + "%");
+            ps.setString(index++, needle + "%");
+            ps.setString(index++, needle + "%");
+            if (phone) {
+                ps.setString(index++, query.digits() + "%");
+            }
+            ps.setString(index++, username);
+            ps.setString(index++, "%" + needle + "%");
+            ps.setString(index++, "%" + needle + "%");
+            ps.setString(index++, "%" + needle + "%");
+            if (phone) {
+                ps.setString(index++, "%" + query.digits() + "%");
+            }
+            if (after != null) {
+                ps.setInt(index++, after.rank());
+                ps.setString(index++, after.name());
+                ps.setObject(index++, after.id());
+            }
+            ps.setInt(index, limit + 1);
+            List<Patient> patients = new ArrayList<>();
+            List<Integer> ranks = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    patients.add(readPatient(rs));
+                    ranks.add(rs.getInt("search_rank"));
+                }
+            }
+            return SearchCursor.page(patients, ranks, limit);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to search patients", e);
+        }
+    }
+
     @Override
     public List<Doctor> getDoctors() {
         String sql = "select username, name, password_hash, qualifications from doctors order by name asc";
@@ -215,17 +373,79 @@ public class JdbcDatabase implements Database {
         String sql = "insert into diagnosis_sessions (id, patient_id, diagnosis, plan, created_at) values (?, ?, ?, ?, ?)";
         try (Connection conn = dataSource.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setObject(1, session.id());
-            ps.setObject(2, session.patientId());
-            ps.setString(3, session.diagnosis());
-            ps.setString(4, session.plan());
-            ps.setTimestamp(5, Timestamp.valueOf(session.createdAt()));
+            bindSession(ps, session);
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new RuntimeException("Failed to save diagnosis session", e);
         }
     }
 
+    @Override
+    public void saveDiagnosisSessions(List<DiagnosisSession> sessions) {
+        if (sessions.isEmpty()) {
+            return;
+        }
+        String sql = "insert into diagnosis_sessions (id, patient_id, diagnosis, plan, created_at) values (?, ?, ?, ?, ?)";
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (DiagnosisSession session : sessions) {
+                    bindSession(ps, session);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save diagnosis sessions", e);
+        }
+    }
+
+    private static void bindSession(PreparedStatement ps, DiagnosisSession session) throws SQLException {
+        ps.setObject(1, session.id());
+        ps.setObject(2, session.patientId());
+        ps.setString(3, session.diagnosis());
+        ps.setString(4, session.plan());
+        ps.setTimestamp(5, Timestamp.valueOf(session.createdAt()));
+    }
+
+    @Override
+    public void savePrescription(DiagnosisSession session, OutboxEmail email) {
+        String sessionSql = "insert into diagnosis_sessions (id, patient_id, diagnosis, plan, created_at) values (?, ?, ?, ?, ?)";
+        String outboxSql = "insert into email_outbox (id, recipient, subject, body, created_at, next_attempt_at) values (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try (PreparedStatement sessionPs = conn.prepareStatement(sessionSql);
+                 PreparedStatement outboxPs = conn.prepareStatement(outboxSql)) {
+                bindSession(sessionPs, session);
+                sessionPs.executeUpdate();
+                Timestamp createdAt = Timestamp.valueOf(email.createdAt());
+                outboxPs.setObject(1, email.id());
+                outboxPs.setString(2, email.recipient());
+                outboxPs.setString(3, email.subject());
+                outboxPs.setString(4, email.body());
+                outboxPs.setTimestamp(5, createdAt);
+                outboxPs.setTimestamp(6, createdAt);
+                outboxPs.executeUpdate();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to save prescription", e);
+        }
+    }
+
     @Override
     public List<DiagnosisSession> getDiagnosisSessions(UUID patientId) {
         String sql = "select id, patient_id, diagnosis, plan, created_at from diagnosis_sessions where patient_id = ? order by created_at desc";
@@ -244,6 +464,166 @@ public class JdbcDatabase implements Database {
         }
     }
 
+    @Override
+    public Map<UUID, List<DiagnosisSession>> getDiagnosisSessions(Collection<UUID> patientIds) {
+        if (patientIds.isEmpty()) {
+            return Map.of();
+        }
+        String sql = "select id, patient_id, diagnosis, plan, created_at from diagnosis_sessions where patient_id = any(?) order by patient_id, created_at desc";
+        Map<UUID, List<DiagnosisSession>> sessions = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            Array ids = conn.createArrayOf("uuid", patientIds.toArray());
+            try {
+                ps.setArray(1, ids);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        DiagnosisSession session = readSession(rs);
+                        sessions.computeIfAbsent(session.patientId(), k -> new ArrayList<>()).add(session);
+                    }
+                }
+            } finally {
+                ids.free();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to fetch diagnosis sessions", e);
+        }
+        sessions.replaceAll((id, list) -> List.copyOf(list));
+        return Collections.unmodifiableMap(sessions);
+    }
+
+    @Override
+    public List<PatientTally> getPatientTallies() {
+        String sql = "select p.doctor_username, p.delivery_status, count(*) as patients, coalesce(sum(s.sessions), 0) as sessions "
+                + "from patients p "
+                + "left join (select patient_id, count(*) as sessions from diagnosis_sessions group by patient_id) s on s.patient_id = p.id "
+                + "group by p.doctor_username, p.delivery_status";
+        List<PatientTally> tallies = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                tallies.add(new PatientTally(
+                        rs.getString("doctor_username"),
+                        rs.getString("delivery_status"),
+                        rs.getLong("patients"),
+                        rs.getLong("sessions")
+                ));
+            }
+            return List.copyOf(tallies);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count patients", e);
+        }
+    }
+
+    @Override
+    public List<OutboxEmail> claimOutboxEmails(int limit, LocalDateTime now, LocalDateTime leaseUntil) {
+        String sql = "update email_outbox set next_attempt_at = ? where id in ("
+                + "select id from email_outbox where status = 'pending' and next_attempt_at <= ? "
+                + "order by next_attempt_at limit ? for update skip locked) "
+                + "returning id, recipient, subject, body, attempts, created_at";
+        List<OutboxEmail> emails = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(leaseUntil));
+            ps.setTimestamp(2, Timestamp.valueOf(now));
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    emails.add(new OutboxEmail(
+                            rs.getObject("id", UUID.class),
+                            rs.getString("recipient"),
+                            rs.getString("subject"),
+                            rs.getString("body"),
+                            rs.getInt("attempts"),
+                            rs.getTimestamp("created_at").toLocalDateTime()
+                    ));
+                }
+            }
+            return List.copyOf(emails);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to claim outbox emails", e);
+        }
+    }
+
+    @Override
+    public void markOutboxSent(Collection<UUID> ids, LocalDateTime sentAt) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        String sql = "update email_outbox set status = 'sent', sent_at = ?, last_error = null where id = any(?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            Array array = conn.createArrayOf("uuid", ids.toArray());
+            try {
+                ps.setTimestamp(1, Timestamp.valueOf(sentAt));
+                ps.setArray(2, array);
+                ps.executeUpdate();
+            } finally {
+                array.free();
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to mark outbox emails sent", e);
+        }
+    }
+
+    @Override
+    public void rescheduleOutboxEmail(UUID id, LocalDateTime nextAttemptAt, String error) {
+        String sql = "update email_outbox set attempts = attempts + 1, next_attempt_at = ?, last_error = ? where id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setTimestamp(1, Timestamp.valueOf(nextAttemptAt));
+            ps.setString(2, error);
+            ps.setObject(3, id);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to reschedule outbox email", e);
+        }
+    }
+
+    @Override
+    public void deadLetterOutboxEmail(UUID id, String error) {
+        String sql = "update email_outbox set attempts = attempts + 1, status = 'dead', last_error = ? where id = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, error);
+            ps.setObject(2, id);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to dead-letter outbox email", e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getOutboxCounts() {
+        String sql = "select status, count(*) as emails from email_outbox where status <> 'sent' group by status";
+        Map<String, Long> counts = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                counts.put(rs.getString("status"), rs.getLong("emails"));
+            }
+            return Map.copyOf(counts);
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to count outbox emails", e);
+        }
+    }
+
+    private static String likeEscape(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private List<Patient> readPatients(PreparedStatement ps) throws SQLException {
+        List<Patient> patients = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                patients.add(readPatient(rs));
+            }
+        }
+        return patients;
+    }
+
     private Patient readPatient(ResultSet rs) throws SQLException {
         UUID id = rs.getObject("id", UUID.class);
         String name = rs.getString("name");
@@ -0,0 +1,255 @@
+package app.db;
+
+import app.log.Log;
+import app.metrics.MetricsRegistry;
+import app.session.SessionSettings;
+import app.session.SessionStore;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+
+public class JdbcSessionStore implements SessionStore {
+    private static final int EVICTION_SAMPLE = 8;
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private record Cached(String username, long createdAt, long lastSeen, long cachedAtNanos) {}
+
+    private final String kind;
+    private final DataSource dataSource;
+    private final long absoluteTtlMillis;
+    private final long idleTtlMillis;
+    private final int maxCached;
+    private final long nearCacheNanos;
+    private final long flushIntervalMillis;
+    private final Map<String, Cached> nearCache = new ConcurrentHashMap<>();
+    private final Map<String, Long> pendingTouches = new ConcurrentHashMap<>();
+    private final Thread writer;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder created;
+    private final LongAdder expired;
+    private final LongAdder touchBatches;
+
+    public JdbcSessionStore(String kind, JdbcDatabase database, SessionSettings settings, long nearCacheSeconds,
+                            long flushIntervalMillis, MetricsRegistry metrics) {
+        this.kind = kind;
+        this.dataSource = database.dataSource();
+        this.absoluteTtlMillis = TimeUnit.SECONDS.toMillis(settings.absoluteTtlSeconds());
+        this.idleTtlMillis = settings.idleTtlSeconds() == 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toMillis(settings.idleTtlSeconds());
+        this.maxCached = settings.maxEntries();
+        this.nearCacheNanos = TimeUnit.SECONDS.toNanos(Math.max(0, nearCacheSeconds));
+        this.flushIntervalMillis = Math.max(100, flushIntervalMillis);
+        String labels = MetricsRegistry.label("store", kind);
+        this.hits = metrics.counter("sessions_near_cache_hits_total", labels, "Session lookups answered by the local near-cache.");
+        this.misses = metrics.counter("sessions_near_cache_misses_total", labels, "Session lookups that read the sessions table.");
+        this.created = metrics.counter("sessions_created_total", labels, "Sessions created.");
+        this.expired = metrics.counter("sessions_expired_total", labels, "Sessions removed after their absolute or idle TTL.");
+        this.touchBatches = metrics.counter("sessions_touch_batches_total", labels, "Batched last-seen updates written to the sessions table.");
+        metrics.gauge("sessions_near_cache_entries", labels, "Sessions held in the local near-cache.", nearCache::size);
+        metrics.gauge("sessions_pending_touches", labels, "Last-seen updates waiting for the next batch.", pendingTouches::size);
+        this.writer = new Thread(this::writeBehind, "session-writer-" + kind);
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    @Override
+    public String create(String username) {
+        String id = UUID.randomUUID().toString();
+        long now = System.currentTimeMillis();
+        String sql = "insert into sessions (id, kind, username, created_at, last_seen_at, expires_at) values (?, ?, ?, ?, ?, ?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, id);
+            ps.setString(2, kind);
+            ps.setString(3, username);
+            ps.setTimestamp(4, timestamp(now));
+            ps.setTimestamp(5, timestamp(now));
+            ps.setTimestamp(6, timestamp(now + absoluteTtlMillis));
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to create session", e);
+        }
+        created.increment();
+        cache(id, new Cached(username, now, now, System.nanoTime()));
+        return id;
+    }
+
+    @Override
+    public Optional<String> resolve(String sessionId) {
+        long now = System.currentTimeMillis();
+        Cached cached = nearCache.get(sessionId);
+        if (cached != null && System.nanoTime() - cached.cachedAtNanos() < nearCacheNanos) {
+            hits.increment();
+        } else {
+            misses.increment();
+            cached = load(sessionId);
+            if (cached == null) {
+                nearCache.remove(sessionId);
+                return Optional.empty();
+            }
+            cache(sessionId, cached);
+        }
+        if (isExpired(cached, now)) {
+            expired.increment();
+            invalidate(sessionId);
+            return Optional.empty();
+        }
+        pendingTouches.put(sessionId, now);
+        if (now > cached.lastSeen()) {
+            nearCache.replace(sessionId, cached, new Cached(cached.username(), cached.createdAt(), now, cached.cachedAtNanos()));
+        }
+        return Optional.of(cached.username());
+    }
+
+    @Override
+    public void invalidate(String sessionId) {
+        nearCache.remove(sessionId);
+        pendingTouches.remove(sessionId);
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement("delete from sessions where id = ? and kind = ?")) {
+            ps.setString(1, sessionId);
+            ps.setString(2, kind);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to delete session", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        writer.interrupt();
+        flushTouches();
+    }
+
+    private Cached load(String sessionId) {
+        String sql = "select username, created_at, last_seen_at from sessions where id = ? and kind = ?";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, sessionId);
+            ps.setString(2, kind);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                long lastSeen = rs.getTimestamp("last_seen_at").getTime();
+                Long pending = pendingTouches.get(sessionId);
+                return new Cached(
+                        rs.getString("username"),
+                        rs.getTimestamp("created_at").getTime(),
+                        pending == null ? lastSeen : Math.max(lastSeen, pending),
+                        System.nanoTime());
+            }
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to load session", e);
+        }
+    }
+
+    private boolean isExpired(Cached session, long now) {
+        return now - session.createdAt() >= absoluteTtlMillis || now - session.lastSeen() >= idleTtlMillis;
+    }
+
+    private void cache(String sessionId, Cached session) {
+        if (nearCacheNanos == 0) {
+            return;
+        }
+        if (nearCache.put(sessionId, session) == null && nearCache.size() > maxCached) {
+            Iterator<Map.Entry<String, Cached>> it = nearCache.entrySet().iterator();
+            String victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+                Map.Entry<String, Cached> candidate = it.next();
+                if (!candidate.getKey().equals(sessionId) && candidate.getValue().cachedAtNanos() < oldest) {
+                    victim = candidate.getKey();
+                    oldest = candidate.getValue().cachedAtNanos();
+                }
+            }
+            if (victim != null) {
+                nearCache.remove(victim);
+            }
+        }
+    }
+
+    private void writeBehind() {
+        long lastPurge = System.currentTimeMillis();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(flushIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                flushTouches();
+                long now = System.currentTimeMillis();
+                if (now - lastPurge >= PURGE_INTERVAL_MILLIS) {
+                    lastPurge = now;
+                    purgeExpired(now);
+                }
+                long staleBefore = System.nanoTime() - nearCacheNanos;
+                nearCache.values().removeIf(cached -> cached.cachedAtNanos() - staleBefore < 0);
+            } catch (RuntimeException e) {
+                Log.error("session.write_failed", e, "store", kind);
+            }
+        }
+    }
+
+    private void flushTouches() {
+        if (pendingTouches.isEmpty()) {
+            return;
+        }
+        String sql = "update sessions set last_seen_at = ? where id = ? and kind = ? and last_seen_at < ?";
+        Map<String, Long> batch = new HashMap<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (Iterator<Map.Entry<String, Long>> it = pendingTouches.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Long> touch = it.next();
+                it.remove();
+                batch.put(touch.getKey(), touch.getValue());
+                Timestamp seen = timestamp(touch.getValue());
+                ps.setTimestamp(1, seen);
+                ps.setString(2, touch.getKey());
+                ps.setString(3, kind);
+                ps.setTimestamp(4, seen);
+                ps.addBatch();
+            }
+            if (!batch.isEmpty()) {
+                ps.executeBatch();
+                touchBatches.increment();
+            }
+        } catch (SQLException e) {
+            // Put the drained touches back so the next flush retries them; newer touches win.
+            batch.forEach((sessionId, seen) -> pendingTouches.merge(sessionId, seen, Math::max));
+            throw new RuntimeException("Failed to record session activity", e);
+        }
+    }
+
+    private void purgeExpired(long now) {
+        String sql = "delete from sessions where kind = ? and (expires_at <= ? or last_seen_at <= ?)";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, kind);
+            ps.setTimestamp(2, timestamp(now));
+            ps.setTimestamp(3, timestamp(idleTtlMillis == Long.MAX_VALUE ? 0 : now - idleTtlMillis));
+            expired.add(ps.executeUpdate());
+        } catch (SQLException e) {
+            throw new RuntimeException("Failed to purge expired sessions", e);
+        }
+    }
+
+    private static Timestamp timestamp(long epochMillis) {
+        return Timestamp.from(Instant.ofEpochMilli(epochMillis));
+    }
+}
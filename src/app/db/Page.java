@@ -0,0 +1,9 @@
+package app.db;
+
+import java.util.List;
+
+public record Page<T>(List<T> items, String nextCursor) {
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
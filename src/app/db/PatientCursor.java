@@ -0,0 +1,48 @@
+package app.db;
+
+import app.model.Patient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+record PatientCursor(String name, UUID id) {
+    private static final int ID_LENGTH = 36;
+
+    static final Comparator<PatientCursor> ORDER = Comparator
+            .comparing(PatientCursor::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(PatientCursor::name)
+            .thenComparing(PatientCursor::id);
+
+    static PatientCursor of(Patient patient) {
+        return new PatientCursor(patient.name(), patient.id());
+    }
+
+    static PatientCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            if (raw.length() > ID_LENGTH && raw.charAt(ID_LENGTH) == ':') {
+                return new PatientCursor(raw.substring(ID_LENGTH + 1), UUID.fromString(raw.substring(0, ID_LENGTH)));
+            }
+        } catch (IllegalArgumentException ignored) { }
+        throw new IllegalArgumentException("Invalid page cursor");
+    }
+
+    String encode() {
+        byte[] raw = (id + ":" + name).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    static Page<Patient> page(List<Patient> fetched, int limit) {
+        if (fetched.size() <= limit) {
+            return new Page<>(List.copyOf(fetched), null);
+        }
+        List<Patient> items = List.copyOf(fetched.subList(0, limit));
+        return new Page<>(items, of(items.get(limit - 1)).encode());
+    }
+}
@@ -0,0 +1,123 @@
+package app.db;
+
+import app.model.Patient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+
+final class PatientSearch {
+    static final int EXACT_NAME = 0;
+    static final int NAME_PREFIX = 1;
+    static final int WORD_PREFIX = 2;
+    static final int CONTACT_PREFIX = 3;
+    static final int SUBSTRING = 4;
+
+    record Query(String needle, String digits) {
+        static Query of(String term) {
+            String needle = normalize(term);
+            return new Query(needle, looksLikePhone(needle) ? PatientSearch.digits(needle) : "");
+        }
+
+        boolean isEmpty() {
+            return needle.isEmpty();
+        }
+    }
+
+    private record Match(SearchCursor key, Patient patient) {}
+
+    static final class TopMatches {
+        private final SearchCursor after;
+        private final int limit;
+        private final PriorityQueue<Match> best;
+
+        TopMatches(SearchCursor after, int limit) {
+            this.after = after;
+            this.limit = limit;
+            this.best = new PriorityQueue<>(limit + 2, (a, b) -> SearchCursor.ORDER.compare(b.key(), a.key()));
+        }
+
+        void offer(Patient patient, int rank) {
+            if (rank < 0) {
+                return;
+            }
+            SearchCursor key = SearchCursor.of(rank, patient);
+            if (after != null && SearchCursor.ORDER.compare(key, after) <= 0) {
+                return;
+            }
+            best.add(new Match(key, patient));
+            if (best.size() > limit + 1) {
+                best.poll();
+            }
+        }
+
+        Page<Patient> page() {
+            List<Match> ordered = new ArrayList<>(best);
+            ordered.sort((a, b) -> SearchCursor.ORDER.compare(a.key(), b.key()));
+            List<Patient> patients = new ArrayList<>(ordered.size());
+            List<Integer> ranks = new ArrayList<>(ordered.size());
+            for (Match match : ordered) {
+                patients.add(match.patient());
+                ranks.add(match.key().rank());
+            }
+            return SearchCursor.page(patients, ranks, limit);
+        }
+    }
+
+    private PatientSearch() {
+    }
+
+    static int rank(Query query, Patient patient) {
+        return rank(query, normalize(patient.name()), normalize(patient.email()), normalize(patient.phone()), digits(patient.phone()));
+    }
+
+    static int rank(Query query, String name, String email, String phone, String phoneDigits) {
+        String needle = query.needle();
+        String digits = query.digits();
+        if (name.equals(needle)) {
+            return EXACT_NAME;
+        }
+        if (name.startsWith(needle)) {
+            return NAME_PREFIX;
+        }
+        if (name.contains(" " + needle)) {
+            return WORD_PREFIX;
+        }
+        if (email.startsWith(needle) || phone.startsWith(needle) || (!digits.isEmpty() && phoneDigits.startsWith(digits))) {
+            return CONTACT_PREFIX;
+        }
+        if (name.contains(needle) || email.contains(needle) || phone.contains(needle)
+                || (!digits.isEmpty() && phoneDigits.contains(digits))) {
+            return SUBSTRING;
+        }
+        return -1;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static String digits(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static boolean looksLikePhone(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if ("0123456789+-(). ".indexOf(value.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,104 @@
+package app.db;
+
+import app.model.Patient;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+final class PatientSearchIndex {
+    private static final int MAX_GRAM = 3;
+
+    private record Entry(Patient patient, String name, String email, String phone, String phoneDigits) {}
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final Map<String, Set<UUID>> grams = new HashMap<>();
+    private volatile long lastUsedNanos = System.nanoTime();
+
+    synchronized void put(Patient patient) {
+        remove(patient.id());
+        Entry entry = new Entry(patient, PatientSearch.normalize(patient.name()), PatientSearch.normalize(patient.email()),
+                PatientSearch.normalize(patient.phone()), PatientSearch.digits(patient.phone()));
+        entries.put(patient.id(), entry);
+        for (String gram : grams(entry)) {
+            grams.computeIfAbsent(gram, k -> new HashSet<>()).add(patient.id());
+        }
+    }
+
+    synchronized void remove(UUID id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String gram : grams(entry)) {
+            Set<UUID> ids = grams.get(gram);
+            if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    long lastUsedNanos() {
+        return lastUsedNanos;
+    }
+
+    synchronized Page<Patient> search(String term, String cursor, int limit) {
+        lastUsedNanos = System.nanoTime();
+        SearchCursor after = SearchCursor.decode(cursor);
+        PatientSearch.Query query = PatientSearch.Query.of(term);
+        if (query.isEmpty()) {
+            return new Page<>(List.of(), null);
+        }
+        Set<UUID> candidates = new HashSet<>(candidates(query.needle()));
+        if (!query.digits().isEmpty() && !query.digits().equals(query.needle())) {
+            candidates.addAll(candidates(query.digits()));
+        }
+        PatientSearch.TopMatches matches = new PatientSearch.TopMatches(after, limit);
+        for (UUID id : candidates) {
+            Entry entry = entries.get(id);
+            matches.offer(entry.patient(), PatientSearch.rank(query, entry.name(), entry.email(), entry.phone(), entry.phoneDigits()));
+        }
+        return matches.page();
+    }
+
+    private Set<UUID> candidates(String needle) {
+        if (needle.length() <= MAX_GRAM) {
+            return grams.getOrDefault(needle, Set.of());
+        }
+        Set<UUID> smallest = null;
+        for (int i = 0; i + MAX_GRAM <= needle.length(); i++) {
+            Set<UUID> ids = grams.get(needle.substring(i, i + MAX_GRAM));
+            if (ids == null) {
+                return Set.of();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+        return smallest;
+    }
+
+    private static Set<String> grams(Entry entry) {
+        Set<String> result = new HashSet<>();
+        addGrams(result, entry.name());
+        addGrams(result, entry.email());
+        addGrams(result, entry.phone());
+        addGrams(result, entry.phoneDigits());
+        return result;
+    }
+
+    private static void addGrams(Set<String> result, String value) {
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= value.length(); i++) {
+                result.add(value.substring(i, i + n));
+            }
+        }
+    }
+}
@@ -0,0 +1,3 @@
+package app.db;
+
+public record PatientTally(String doctorUsername, String deliveryStatus, long patients, long sessions) {}
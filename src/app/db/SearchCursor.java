@@ -0,0 +1,52 @@
+package app.db;
+
+import app.model.Patient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+record SearchCursor(int rank, String name, UUID id) {
+    private static final int ID_LENGTH = 36;
+
+    static final Comparator<SearchCursor> ORDER = Comparator
+            .comparingInt(SearchCursor::rank)
+            .thenComparing(SearchCursor::name, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(SearchCursor::name)
+            .thenComparing(SearchCursor::id);
+
+    static SearchCursor of(int rank, Patient patient) {
+        return new SearchCursor(rank, patient.name(), patient.id());
+    }
+
+    static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+            int idStart = raw.indexOf(':') + 1;
+            if (idStart > 0 && raw.length() > idStart + ID_LENGTH && raw.charAt(idStart + ID_LENGTH) == ':') {
+                return new SearchCursor(Integer.parseInt(raw.substring(0, idStart - 1)),
+                        raw.substring(idStart + ID_LENGTH + 1),
+                        UUID.fromString(raw.substring(idStart, idStart + ID_LENGTH)));
+            }
+        } catch (IllegalArgumentException ignored) { }
+        throw new IllegalArgumentException("Invalid page cursor");
+    }
+
+    String encode() {
+        byte[] raw = (rank + ":" + id + ":" + name).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    static Page<Patient> page(List<Patient> fetched, List<Integer> ranks, int limit) {
+        if (fetched.size() <= limit) {
+            return new Page<>(List.copyOf(fetched), null);
+        }
+        List<Patient> items = List.copyOf(fetched.subList(0, limit));
+        return new Page<>(items, of(ranks.get(limit - 1), items.get(limit - 1)).encode());
+    }
+}
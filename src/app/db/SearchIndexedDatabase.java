@@ -0,0 +1,121 @@
+package app.db;
+
+import app.metrics.MetricsRegistry;
+import app.model.Patient;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SearchIndexedDatabase extends ForwardingDatabase {
+    private static final int EVICTION_SAMPLE = 8;
+    private static final int LOAD_PAGE_SIZE = 500;
+
+    private final int maxDoctors;
+    private final Map<String, PatientSearchIndex> indexes = new ConcurrentHashMap<>();
+    private final LongAdder queries;
+    private final LongAdder builds;
+
+    public SearchIndexedDatabase(Database delegate, int maxDoctors, MetricsRegistry metrics) {
+        super(delegate);
+        this.maxDoctors = Math.max(1, maxDoctors);
+        this.queries = metrics.counter("search_index_queries_total", "Patient searches answered by the in-memory index.");
+        this.builds = metrics.counter("search_index_builds_total", "Per-doctor search indexes loaded from the database.");
+        metrics.gauge("search_index_doctors", "Doctors with a loaded search index.", indexes::size);
+        metrics.gauge("search_index_patients", "Patients held in loaded search indexes.",
+                () -> indexes.values().stream().mapToLong(PatientSearchIndex::size).sum());
+    }
+
+    @Override
+    public void savePatient(Patient patient) {
+        delegate.savePatient(patient);
+        indexed(patient);
+    }
+
+    @Override
+    public void savePatients(List<Patient> patients) {
+        delegate.savePatients(patients);
+        for (Patient patient : patients) {
+            if (patient.doctorUsername() != null) {
+                indexes.remove(patient.doctorUsername());
+            }
+        }
+    }
+
+    @Override
+    public void updatePatient(Patient patient) {
+        delegate.updatePatient(patient);
+        unindexed(patient.id(), patient.doctorUsername());
+        indexed(patient);
+    }
+
+    @Override
+    public void deletePatient(UUID id) {
+        delegate.deletePatient(id);
+        unindexed(id, null);
+    }
+
+    @Override
+    public Page<Patient> searchPatients(String username, String term, String cursor, int limit) {
+        PatientSearchIndex index = indexes.get(username);
+        if (index == null) {
+            if (indexes.size() >= maxDoctors) {
+                evictLeastRecentlyUsed();
+            }
+            index = indexes.computeIfAbsent(username, this::load);
+        }
+        queries.increment();
+        return index.search(term, cursor, limit);
+    }
+
+    private PatientSearchIndex load(String username) {
+        PatientSearchIndex index = new PatientSearchIndex();
+        String cursor = null;
+        do {
+            Page<Patient> page = delegate.getPatientsByDoctor(username, cursor, LOAD_PAGE_SIZE);
+            for (Patient patient : page.items()) {
+                index.put(patient);
+            }
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        builds.increment();
+        return index;
+    }
+
+    private void indexed(Patient patient) {
+        if (patient.doctorUsername() == null) {
+            return;
+        }
+        indexes.computeIfPresent(patient.doctorUsername(), (doctor, index) -> {
+            index.put(patient);
+            return index;
+        });
+    }
+
+    private void unindexed(UUID id, String keptDoctor) {
+        for (Map.Entry<String, PatientSearchIndex> entry : indexes.entrySet()) {
+            if (!entry.getKey().equals(keptDoctor)) {
+                entry.getValue().remove(id);
+            }
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<Map.Entry<String, PatientSearchIndex>> it = indexes.entrySet().iterator();
+        String victim = null;
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+            Map.Entry<String, PatientSearchIndex> candidate = it.next();
+            if (candidate.getValue().lastUsedNanos() < oldest) {
+                victim = candidate.getKey();
+                oldest = candidate.getValue().lastUsedNanos();
+            }
+        }
+        if (victim != null) {
+            indexes.remove(victim);
+        }
+    }
+}
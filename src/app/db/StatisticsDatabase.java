@@ -0,0 +1,198 @@
+package app.db;
+
+import app.metrics.MetricsRegistry;
+import app.model.DiagnosisSession;
+import app.model.OutboxEmail;
+import app.model.Patient;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class StatisticsDatabase extends ForwardingDatabase {
+    private static final String DEFAULT_STATUS = "pending";
+
+    public record Summary(Map<String, Long> patientsByDoctor, Map<String, Long> sessionsByDoctor,
+                          Map<String, Long> deliveryStatuses, long totalPatients, long totalSessions, long activeDoctors) {}
+
+    private final ReentrantLock[] stripes = new ReentrantLock[64];
+    private Map<String, long[]> doctors = new HashMap<>();
+    private Map<String, Long> statuses = new HashMap<>();
+    private long totalPatients;
+    private long totalSessions;
+
+    public StatisticsDatabase(Database delegate, MetricsRegistry metrics) {
+        super(delegate);
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        rebuild();
+        metrics.gauge("patients_stored", "Patients stored, tracked by the admin statistics.", this::totalPatients);
+        metrics.gauge("diagnosis_sessions_stored", "Diagnosis sessions stored, tracked by the admin statistics.", this::totalSessions);
+    }
+
+    public void rebuild() {
+        Map<String, long[]> doctors = new HashMap<>();
+        Map<String, Long> statuses = new HashMap<>();
+        long patients = 0;
+        long sessions = 0;
+        for (PatientTally tally : delegate.getPatientTallies()) {
+            patients += tally.patients();
+            sessions += tally.sessions();
+            statuses.merge(status(tally.deliveryStatus()), tally.patients(), Long::sum);
+            if (tally.doctorUsername() != null) {
+                long[] counts = doctors.computeIfAbsent(tally.doctorUsername(), k -> new long[2]);
+                counts[0] += tally.patients();
+                counts[1] += tally.sessions();
+            }
+        }
+        synchronized (this) {
+            this.doctors = doctors;
+            this.statuses = statuses;
+            this.totalPatients = patients;
+            this.totalSessions = sessions;
+        }
+    }
+
+    public synchronized Summary summary() {
+        Map<String, Long> patientsByDoctor = new HashMap<>(doctors.size() * 2);
+        Map<String, Long> sessionsByDoctor = new HashMap<>(doctors.size() * 2);
+        long active = 0;
+        for (Map.Entry<String, long[]> entry : doctors.entrySet()) {
+            patientsByDoctor.put(entry.getKey(), entry.getValue()[0]);
+            sessionsByDoctor.put(entry.getKey(), entry.getValue()[1]);
+            if (entry.getValue()[0] > 0) {
+                active++;
+            }
+        }
+        return new Summary(Map.copyOf(patientsByDoctor), Map.copyOf(sessionsByDoctor), Map.copyOf(statuses),
+                totalPatients, totalSessions, active);
+    }
+
+    @Override
+    public void savePatient(Patient patient) {
+        delegate.savePatient(patient);
+        synchronized (this) {
+            adjust(patient, 1, 0);
+        }
+    }
+
+    @Override
+    public void savePatients(List<Patient> patients) {
+        delegate.savePatients(patients);
+        synchronized (this) {
+            for (Patient patient : patients) {
+                adjust(patient, 1, 0);
+            }
+        }
+    }
+
+    @Override
+    public void updatePatient(Patient patient) {
+        ReentrantLock lock = stripe(patient.id());
+        lock.lock();
+        try {
+            Optional<Patient> previous = delegate.getPatient(patient.id());
+            boolean moved = previous.isPresent() && !Objects.equals(previous.get().doctorUsername(), patient.doctorUsername());
+            long sessions = moved ? delegate.getDiagnosisSessions(patient.id()).size() : 0;
+            delegate.updatePatient(patient);
+            if (previous.isPresent()) {
+                synchronized (this) {
+                    adjust(previous.get(), -1, -sessions);
+                    adjust(patient, 1, sessions);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void deletePatient(UUID id) {
+        ReentrantLock lock = stripe(id);
+        lock.lock();
+        try {
+            Optional<Patient> previous = delegate.getPatient(id);
+            long sessions = previous.isPresent() ? delegate.getDiagnosisSessions(id).size() : 0;
+            delegate.deletePatient(id);
+            if (previous.isPresent()) {
+                synchronized (this) {
+                    adjust(previous.get(), -1, -sessions);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock stripe(UUID id) {
+        return stripes[(id.hashCode() & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    @Override
+    public void saveDiagnosisSession(DiagnosisSession session) {
+        delegate.saveDiagnosisSession(session);
+        sessionSaved(session);
+    }
+
+    @Override
+    public void savePrescription(DiagnosisSession session, OutboxEmail email) {
+        delegate.savePrescription(session, email);
+        sessionSaved(session);
+    }
+
+    @Override
+    public void saveDiagnosisSessions(List<DiagnosisSession> sessions) {
+        delegate.saveDiagnosisSessions(sessions);
+        Map<UUID, Optional<Patient>> patients = new HashMap<>();
+        for (DiagnosisSession session : sessions) {
+            patients.computeIfAbsent(session.patientId(), delegate::getPatient);
+        }
+        synchronized (this) {
+            for (DiagnosisSession session : sessions) {
+                totalSessions++;
+                patients.get(session.patientId()).map(Patient::doctorUsername)
+                        .ifPresent(doctor -> doctors.computeIfAbsent(doctor, k -> new long[2])[1]++);
+            }
+        }
+    }
+
+    private void sessionSaved(DiagnosisSession session) {
+        Optional<Patient> patient = delegate.getPatient(session.patientId());
+        synchronized (this) {
+            totalSessions++;
+            patient.map(Patient::doctorUsername).ifPresent(doctor -> doctors.computeIfAbsent(doctor, k -> new long[2])[1]++);
+        }
+    }
+
+    private synchronized long totalPatients() {
+        return totalPatients;
+    }
+
+    private synchronized long totalSessions() {
+        return totalSessions;
+    }
+
+    private void adjust(Patient patient, long patients, long sessions) {
+        totalPatients += patients;
+        totalSessions += sessions;
+        statuses.merge(status(patient.deliveryStatus()), patients, (a, b) -> a + b == 0 ? null : a + b);
+        if (patient.doctorUsername() == null) {
+            return;
+        }
+        long[] counts = doctors.computeIfAbsent(patient.doctorUsername(), k -> new long[2]);
+        counts[0] += patients;
+        counts[1] += sessions;
+        if (counts[0] == 0 && counts[1] == 0) {
+            doctors.remove(patient.doctorUsername());
+        }
+    }
+
+    private static String status(String deliveryStatus) {
+        return deliveryStatus == null ? DEFAULT_STATUS : deliveryStatus;
+    }
+}
@@ -0,0 +1,180 @@
+package app.log;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+final class AsyncLogger {
+    enum Overflow { DROP, BLOCK }
+
+    private record Event(long timestamp, String level, String name, Object[] fields, Throwable error) {}
+
+    private static final int BATCH_SIZE = 256;
+    private static final long IDLE_PARK_NANOS = 2_000_000L;
+    private static final long BLOCK_PARK_NANOS = 50_000L;
+
+    private final RingBuffer<Event> buffer;
+    private final Overflow overflow;
+    private final OutputStream console;
+    private final RollingFileSink file;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final Thread flusher;
+    private final StringBuilder line = new StringBuilder(512);
+    private volatile boolean running = true;
+
+    AsyncLogger(int capacity, Overflow overflow, boolean consoleEnabled, RollingFileSink file) {
+        this.buffer = new RingBuffer<>(capacity);
+        this.overflow = overflow;
+        this.console = consoleEnabled ? new FileOutputStream(FileDescriptor.out) : null;
+        this.file = file;
+        this.flusher = new Thread(this::drainLoop, "log-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    void log(String level, String name, Object[] fields, Throwable error) {
+        Event event = new Event(System.currentTimeMillis(), level, name, fields, error);
+        if (buffer.offer(event)) {
+            return;
+        }
+        if (overflow == Overflow.DROP || Thread.currentThread() == flusher) {
+            dropped.increment();
+            return;
+        }
+        while (!buffer.offer(event)) {
+            if (!running) {
+                dropped.increment();
+                return;
+            }
+            LockSupport.unpark(flusher);
+            LockSupport.parkNanos(BLOCK_PARK_NANOS);
+        }
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    long written() {
+        return written.sum();
+    }
+
+    int depth() {
+        return buffer.size();
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    void shutdown() {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(2_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (drainBatch() == 0) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        while (drainBatch() > 0) {
+            // drain whatever was queued before shutdown
+        }
+        try {
+            if (file != null) {
+                file.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    private int drainBatch() {
+        int count = 0;
+        Event event;
+        line.setLength(0);
+        while (count < BATCH_SIZE && (event = buffer.poll()) != null) {
+            format(event, line);
+            count++;
+        }
+        if (count == 0) {
+            return 0;
+        }
+        byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+        try {
+            if (console != null) {
+                console.write(bytes);
+                console.flush();
+            }
+            if (file != null) {
+                file.write(bytes, bytes.length);
+                file.flush();
+            }
+        } catch (IOException e) {
+            dropped.add(count);
+            return count;
+        }
+        written.add(count);
+        return count;
+    }
+
+    private static void format(Event event, StringBuilder sb) {
+        sb.append("ts=").append(Instant.ofEpochMilli(event.timestamp()))
+                .append(" level=").append(event.level())
+                .append(" event=");
+        appendValue(sb, event.name());
+        Object[] fields = event.fields();
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            sb.append(' ').append(fields[i]).append('=');
+            appendValue(sb, fields[i + 1]);
+        }
+        if (event.error() != null) {
+            sb.append(" error=");
+            appendValue(sb, event.error().toString());
+            StringWriter trace = new StringWriter();
+            event.error().printStackTrace(new PrintWriter(trace));
+            sb.append(" trace=");
+            appendValue(sb, trace.toString());
+        }
+        sb.append('\n');
+    }
+
+    private static void appendValue(StringBuilder sb, Object value) {
+        String text = value == null ? "" : value.toString();
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=' || c == '\\';
+        }
+        if (!quote) {
+            sb.append(text);
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
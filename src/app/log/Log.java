@@ -0,0 +1,56 @@
+package app.log;
+
+import app.metrics.MetricsRegistry;
+import app.util.Env;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public final class Log {
+    private static final AsyncLogger LOGGER = create();
+
+    private Log() {
+    }
+
+    public static void info(String event, Object... fields) {
+        LOGGER.log("INFO", event, fields, null);
+    }
+
+    public static void warn(String event, Object... fields) {
+        LOGGER.log("WARN", event, fields, null);
+    }
+
+    public static void error(String event, Throwable error, Object... fields) {
+        LOGGER.log("ERROR", event, fields, error);
+    }
+
+    public static void registerMetrics(MetricsRegistry metrics) {
+        metrics.gauge("log_buffer_capacity", "Log ring buffer capacity.", LOGGER::capacity);
+        metrics.gauge("log_buffer_depth", "Log events waiting for the flusher.", LOGGER::depth);
+        metrics.gauge("log_events_dropped_total", "Log events dropped because the buffer was full.", LOGGER::dropped);
+        metrics.gauge("log_events_written_total", "Log events written by the flusher.", LOGGER::written);
+    }
+
+    private static AsyncLogger create() {
+        int capacity = Env.intValue("LOG_BUFFER_SIZE", 8192, System.err::println);
+        AsyncLogger.Overflow overflow = "block".equalsIgnoreCase(System.getenv("LOG_OVERFLOW"))
+                ? AsyncLogger.Overflow.BLOCK
+                : AsyncLogger.Overflow.DROP;
+        boolean console = !"false".equalsIgnoreCase(System.getenv("LOG_CONSOLE"));
+        RollingFileSink file = null;
+        String path = System.getenv("LOG_FILE");
+        if (path != null && !path.isBlank()) {
+            try {
+                file = new RollingFileSink(Path.of(path.trim()),
+                        Env.intValue("LOG_MAX_BYTES", 10 * 1024 * 1024, System.err::println),
+                        Env.intValue("LOG_MAX_FILES", 5, System.err::println));
+            } catch (IOException e) {
+                System.err.println("Cannot open LOG_FILE '" + path + "', logging to console only: " + e.getMessage());
+                console = true;
+            }
+        }
+        AsyncLogger logger = new AsyncLogger(capacity, overflow, console || file == null, file);
+        Runtime.getRuntime().addShutdownHook(new Thread(logger::shutdown, "log-shutdown"));
+        return logger;
+    }
+}
@@ -0,0 +1,65 @@
+package app.log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+final class RollingFileSink {
+    private final Path file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private OutputStream out;
+    private long written;
+
+    RollingFileSink(Path file, long maxBytes, int maxFiles) throws IOException {
+        this.file = file.toAbsolutePath();
+        this.maxBytes = Math.max(1024, maxBytes);
+        this.maxFiles = Math.max(1, maxFiles);
+        Path parent = this.file.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        open();
+    }
+
+    void write(byte[] bytes, int length) throws IOException {
+        if (written > 0 && written + length > maxBytes) {
+            rotate();
+        }
+        out.write(bytes, 0, length);
+        written += length;
+    }
+
+    void flush() throws IOException {
+        out.flush();
+    }
+
+    void close() throws IOException {
+        out.close();
+    }
+
+    private void open() throws IOException {
+        out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        written = Files.size(file);
+    }
+
+    private void rotate() throws IOException {
+        out.close();
+        Files.deleteIfExists(archive(maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path source = archive(i);
+            if (Files.exists(source)) {
+                Files.move(source, archive(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, archive(1), StandardCopyOption.REPLACE_EXISTING);
+        open();
+    }
+
+    private Path archive(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+}
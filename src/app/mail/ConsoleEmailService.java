@@ -1,12 +1,10 @@
 package app.mail;
 
+import app.log.Log;
+
 public class ConsoleEmailService implements EmailService {
     @Override
     public void sendEmail(String to, String subject, String body) {
-        System.out.println("--- Email ---");
-        System.out.println("To: " + to);
-        System.out.println("Subject: " + subject);
-        System.out.println(body);
-        System.out.println("------------");
+        Log.info("email.sent", "to", to, "subject", subject, "body", body);
     }
 }
@@ -0,0 +1,3 @@
+package app.mail;
+
+public record EmailMessage(String to, String subject, String body) {}
@@ -1,5 +1,22 @@
 package app.mail;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 public interface EmailService {
     void sendEmail(String to, String subject, String body);
+
+    default Map<Integer, RuntimeException> sendEmails(List<EmailMessage> messages) {
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            EmailMessage message = messages.get(i);
+            try {
+                sendEmail(message.to(), message.subject(), message.body());
+            } catch (RuntimeException e) {
+                failures.put(i, e);
+            }
+        }
+        return failures;
+    }
 }
@@ -0,0 +1,167 @@
+package app.mail;
+
+import app.db.Database;
+import app.log.Log;
+import app.metrics.LatencyHistogram;
+import app.metrics.MetricsRegistry;
+import app.model.OutboxEmail;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OutboxDispatcher {
+    private final Database database;
+    private final EmailService emailService;
+    private final int workers;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final long pollMillis;
+    private final int maxAttempts;
+    private final long backoffMillis;
+    private final long backoffMaxMillis;
+    private final LongAdder sent;
+    private final LongAdder retries;
+    private final LongAdder deadLetters;
+    private final LatencyHistogram sendLatency;
+    private final Object signal = new Object();
+    private final AtomicLong lastRefresh = new AtomicLong();
+    private volatile Map<String, Long> counts = Map.of();
+    private boolean signalled;
+
+    public OutboxDispatcher(Database database, EmailService emailService, int workers, int batchSize, long leaseSeconds,
+                            long pollMillis, int maxAttempts, long backoffMillis, long backoffMaxMillis, MetricsRegistry metrics) {
+        this.database = database;
+        this.emailService = emailService;
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.leaseSeconds = Math.max(1, leaseSeconds);
+        this.pollMillis = Math.max(10, pollMillis);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMillis = Math.max(1, backoffMillis);
+        this.backoffMaxMillis = Math.max(this.backoffMillis, backoffMaxMillis);
+        this.sent = metrics.counter("email_outbox_sent_total", "Outbox emails handed to the mail provider.");
+        this.retries = metrics.counter("email_outbox_retries_total", "Outbox emails rescheduled after a failed send.");
+        this.deadLetters = metrics.counter("email_outbox_dead_letters_total", "Outbox emails given up on after too many attempts.");
+        this.sendLatency = metrics.histogram("email_outbox_send_duration_seconds", "Time to hand one claimed batch of outbox emails to the mail provider.");
+        metrics.gauge("email_outbox_depth", MetricsRegistry.label("status", "pending"), "Emails waiting in the outbox.",
+                () -> counts.getOrDefault("pending", 0L));
+        metrics.gauge("email_outbox_depth", MetricsRegistry.label("status", "dead"), "Emails waiting in the outbox.",
+                () -> counts.getOrDefault("dead", 0L));
+    }
+
+    public void start() {
+        for (int i = 0; i < workers; i++) {
+            Thread worker = new Thread(this::dispatchLoop, "email-outbox-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+        Log.info("email.outbox_started", "workers", workers, "batch", batchSize);
+    }
+
+    public void wake() {
+        synchronized (signal) {
+            signalled = true;
+            signal.notifyAll();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (true) {
+            try {
+                int claimed = dispatchBatch();
+                refreshCounts();
+                if (claimed < batchSize) {
+                    awaitWork();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                Log.error("email.outbox_failed", e);
+                try {
+                    awaitWork();
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private int dispatchBatch() {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEmail> emails = database.claimOutboxEmails(batchSize, now, now.plusSeconds(leaseSeconds));
+        if (emails.isEmpty()) {
+            return 0;
+        }
+        List<EmailMessage> messages = new ArrayList<>(emails.size());
+        for (OutboxEmail email : emails) {
+            messages.add(new EmailMessage(email.recipient(), email.subject(), email.body()));
+        }
+        long start = System.nanoTime();
+        Map<Integer, RuntimeException> failures;
+        try {
+            failures = emailService.sendEmails(messages);
+        } catch (RuntimeException e) {
+            failures = new HashMap<>();
+            for (int i = 0; i < emails.size(); i++) {
+                failures.put(i, e);
+            }
+        } finally {
+            sendLatency.recordNanos(System.nanoTime() - start);
+        }
+        List<UUID> delivered = new ArrayList<>(emails.size());
+        for (int i = 0; i < emails.size(); i++) {
+            RuntimeException failure = failures.get(i);
+            if (failure == null) {
+                delivered.add(emails.get(i).id());
+            } else {
+                failed(emails.get(i), failure);
+            }
+        }
+        if (!delivered.isEmpty()) {
+            database.markOutboxSent(delivered, LocalDateTime.now());
+            sent.add(delivered.size());
+        }
+        return emails.size();
+    }
+
+    private void failed(OutboxEmail email, RuntimeException e) {
+        String error = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+        int attempts = email.attempts() + 1;
+        if (attempts >= maxAttempts) {
+            database.deadLetterOutboxEmail(email.id(), error);
+            deadLetters.increment();
+            Log.error("email.dead_lettered", e, "id", email.id(), "to", email.recipient(), "attempts", attempts);
+            return;
+        }
+        long delay = Math.min(backoffMaxMillis, backoffMillis << Math.min(attempts - 1, 20));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        database.rescheduleOutboxEmail(email.id(), LocalDateTime.now().plusNanos(delay * 1_000_000), error);
+        retries.increment();
+        Log.warn("email.retry_scheduled", "id", email.id(), "to", email.recipient(), "attempts", attempts,
+                "delayMs", delay, "error", error);
+    }
+
+    private void refreshCounts() {
+        long now = System.currentTimeMillis();
+        long last = lastRefresh.get();
+        if (now - last >= pollMillis && lastRefresh.compareAndSet(last, now)) {
+            counts = Map.copyOf(database.getOutboxCounts());
+        }
+    }
+
+    private void awaitWork() throws InterruptedException {
+        synchronized (signal) {
+            if (!signalled) {
+                signal.wait(pollMillis);
+            }
+            signalled = false;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package app.mail;
+
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+final class SmtpConnection {
+    record Reply(int code, String text) {
+        boolean positive() {
+            return code >= 200 && code < 400;
+        }
+
+        @Override
+        public String toString() {
+            return code + " " + text;
+        }
+    }
+
+    static final class BrokenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final transient List<Reply> replies;
+
+        BrokenException(List<Reply> replies, IOException cause) {
+            super(cause.getMessage(), cause);
+            this.replies = List.copyOf(replies);
+        }
+
+        List<Reply> replies() {
+            return replies;
+        }
+    }
+
+    private final SmtpSettings settings;
+    private final SSLSocketFactory tlsFactory;
+    private final Set<String> extensions = new HashSet<>();
+    private Socket socket;
+    private InputStream in;
+    private OutputStream out;
+    private int messages;
+    private boolean fresh = true;
+    private long lastUsedNanos = System.nanoTime();
+
+    private SmtpConnection(SmtpSettings settings, SSLSocketFactory tlsFactory) {
+        this.settings = settings;
+        this.tlsFactory = tlsFactory;
+    }
+
+    static SmtpConnection open(SmtpSettings settings, SSLSocketFactory tlsFactory) throws IOException {
+        SmtpConnection connection = new SmtpConnection(settings, tlsFactory);
+        try {
+            connection.handshake();
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private void handshake() throws IOException {
+        Socket plain = new Socket();
+        socket = plain;
+        plain.connect(new InetSocketAddress(settings.host(), settings.port()), settings.timeoutMillis());
+        plain.setSoTimeout(settings.timeoutMillis());
+        plain.setTcpNoDelay(true);
+        if (settings.tls() == SmtpSettings.Tls.IMPLICIT) {
+            upgrade(plain);
+        } else {
+            bindStreams();
+        }
+        expect(readReply(), 220, "greeting");
+        ehlo();
+        if (settings.tls() == SmtpSettings.Tls.STARTTLS) {
+            if (!extensions.contains("STARTTLS")) {
+                throw new IOException("SMTP server does not offer STARTTLS");
+            }
+            expect(exchange(List.of(command("STARTTLS"))).get(0), 220, "STARTTLS");
+            upgrade(socket);
+            ehlo();
+        }
+        if (!settings.username().isEmpty()) {
+            authenticate();
+        }
+    }
+
+    private void upgrade(Socket plain) throws IOException {
+        SSLSocket tls = (SSLSocket) tlsFactory.createSocket(plain, settings.host(), settings.port(), true);
+        SSLParameters parameters = tls.getSSLParameters();
+        parameters.setEndpointIdentificationAlgorithm("HTTPS");
+        tls.setSSLParameters(parameters);
+        tls.startHandshake();
+        socket = tls;
+        bindStreams();
+    }
+
+    private void bindStreams() throws IOException {
+        in = new BufferedInputStream(socket.getInputStream(), 8 * 1024);
+        out = new BufferedOutputStream(socket.getOutputStream(), 64 * 1024);
+    }
+
+    private void ehlo() throws IOException {
+        Reply reply = exchange(List.of(command("EHLO " + settings.heloName()))).get(0);
+        expect(reply, 250, "EHLO");
+        extensions.clear();
+        String[] lines = reply.text().split("\n");
+        for (int i = 1; i < lines.length; i++) {
+            String line = lines[i].trim().toUpperCase(Locale.ROOT);
+            extensions.add(line);
+            int space = line.indexOf(' ');
+            if (space > 0) {
+                extensions.add(line.substring(0, space));
+            }
+        }
+    }
+
+    private void authenticate() throws IOException {
+        String user = settings.username();
+        String password = settings.password();
+        if (supportsAuth("PLAIN")) {
+            String token = base64("\0" + user + "\0" + password);
+            expect(exchange(List.of(command("AUTH PLAIN " + token))).get(0), 235, "AUTH PLAIN");
+        } else if (supportsAuth("LOGIN")) {
+            expect(exchange(List.of(command("AUTH LOGIN"))).get(0), 334, "AUTH LOGIN");
+            expect(exchange(List.of(command(base64(user)))).get(0), 334, "AUTH LOGIN");
+            expect(exchange(List.of(command(base64(password)))).get(0), 235, "AUTH LOGIN");
+        } else {
+            throw new IOException("SMTP server offers no supported AUTH mechanism");
+        }
+    }
+
+    private boolean supportsAuth(String mechanism) {
+        for (String extension : extensions) {
+            if (extension.startsWith("AUTH ") && List.of(extension.substring(5).split(" ")).contains(mechanism)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String command(String line) {
+        return line + "\r\n";
+    }
+
+    boolean pipelining() {
+        return extensions.contains("PIPELINING");
+    }
+
+    List<Reply> exchange(List<String> chunks) throws IOException {
+        List<Reply> replies = new ArrayList<>(chunks.size());
+        try {
+            if (pipelining()) {
+                for (String chunk : chunks) {
+                    out.write(chunk.getBytes(StandardCharsets.UTF_8));
+                }
+                out.flush();
+                for (int i = 0; i < chunks.size(); i++) {
+                    replies.add(readReply());
+                }
+            } else {
+                for (String chunk : chunks) {
+                    out.write(chunk.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    replies.add(readReply());
+                }
+            }
+        } catch (IOException e) {
+            throw new BrokenException(replies, e);
+        }
+        lastUsedNanos = System.nanoTime();
+        return replies;
+    }
+
+    private Reply readReply() throws IOException {
+        StringBuilder text = new StringBuilder();
+        while (true) {
+            String line = readLine();
+            if (line.length() < 3) {
+                throw new IOException("Malformed SMTP reply: " + line);
+            }
+            int code;
+            try {
+                code = Integer.parseInt(line.substring(0, 3));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed SMTP reply: " + line);
+            }
+            if (!text.isEmpty()) {
+                text.append('\n');
+            }
+            text.append(line.length() > 4 ? line.substring(4) : "");
+            if (line.length() == 3 || line.charAt(3) != '-') {
+                return new Reply(code, text.toString());
+            }
+        }
+    }
+
+    private String readLine() throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        while (true) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("SMTP server closed the connection");
+            }
+            if (b == '\n') {
+                break;
+            }
+            if (line.size() < 4096) {
+                line.write(b);
+            }
+        }
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+
+    private static void expect(Reply reply, int code, String step) throws IOException {
+        if (reply.code() != code) {
+            throw new IOException("SMTP " + step + " failed: " + reply);
+        }
+    }
+
+    private static String base64(String value) {
+        return Base64.getEncoder().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void delivered() {
+        messages++;
+    }
+
+    int messages() {
+        return messages;
+    }
+
+    boolean fresh() {
+        return fresh;
+    }
+
+    void used() {
+        fresh = false;
+    }
+
+    long idleNanos() {
+        return System.nanoTime() - lastUsedNanos;
+    }
+
+    void quit() {
+        try {
+            out.write(command("QUIT").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+        } catch (IOException | RuntimeException ignored) {
+        } finally {
+            close();
+        }
+    }
+
+    void close() {
+        try {
+            if (socket != null) {
+                socket.close();
+            }
+        } catch (IOException ignored) {
+        }
+    }
+}
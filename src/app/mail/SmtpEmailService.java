@@ -0,0 +1,327 @@
+package app.mail;
+
+import app.log.Log;
+import app.metrics.LatencyHistogram;
+import app.metrics.MetricsRegistry;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SmtpEmailService implements EmailService {
+    private static final int MAX_RECONNECTS = 3;
+
+    private final SmtpSettings settings;
+    private final SSLSocketFactory tlsFactory;
+    private final BlockingDeque<SmtpConnection> idle = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final long idleNanos;
+    private final LongAdder opened;
+    private final LongAdder connectionErrors;
+    private final LongAdder sent;
+    private final LongAdder rejected;
+    private final LatencyHistogram connectLatency;
+
+    public SmtpEmailService(SmtpSettings settings, MetricsRegistry metrics) {
+        this(settings, (SSLSocketFactory) SSLSocketFactory.getDefault(), metrics);
+    }
+
+    public SmtpEmailService(SmtpSettings settings, SSLSocketFactory tlsFactory, MetricsRegistry metrics) {
+        this.settings = settings;
+        this.tlsFactory = tlsFactory;
+        this.permits = new Semaphore(settings.poolSize());
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(settings.idleMillis());
+        this.opened = metrics.counter("smtp_connections_opened_total", "SMTP connections opened and authenticated.");
+        this.connectionErrors = metrics.counter("smtp_connection_errors_total", "SMTP connections that failed to open or broke mid-session.");
+        this.sent = metrics.counter("smtp_messages_sent_total", "Messages accepted by the SMTP server.");
+        this.rejected = metrics.counter("smtp_messages_rejected_total", "Messages the SMTP server refused.");
+        this.connectLatency = metrics.histogram("smtp_connect_duration_seconds", "Time to connect, negotiate TLS and authenticate.");
+        metrics.gauge("smtp_connections", MetricsRegistry.label("state", "idle"), "Pooled SMTP connections.", idle::size);
+        metrics.gauge("smtp_connections", MetricsRegistry.label("state", "busy"), "Pooled SMTP connections.",
+                () -> settings.poolSize() - permits.availablePermits());
+    }
+
+    @Override
+    public void sendEmail(String to, String subject, String body) {
+        RuntimeException failure = sendEmails(List.of(new EmailMessage(to, subject, body))).get(0);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public Map<Integer, RuntimeException> sendEmails(List<EmailMessage> messages) {
+        Batch batch = new Batch(messages);
+        int reconnects = 0;
+        while (batch.next < messages.size()) {
+            SmtpConnection connection;
+            try {
+                connection = borrow();
+            } catch (RuntimeException e) {
+                batch.failRemaining(e);
+                break;
+            }
+            boolean reusable = false;
+            boolean fresh = connection.fresh();
+            int before = batch.settled();
+            try {
+                deliver(connection, batch);
+                reusable = connection.messages() < settings.maxMessagesPerConnection();
+            } catch (IOException e) {
+                connectionErrors.increment();
+                Log.warn("smtp.connection_lost", "host", settings.host(), "error", e.getMessage());
+                boolean progressed = batch.settled() != before;
+                if (!progressed && !fresh) {
+                    closeIdle();
+                }
+                if (!progressed && (fresh || ++reconnects > MAX_RECONNECTS)) {
+                    batch.failRemaining(new RuntimeException("Failed to send email", e));
+                }
+            } finally {
+                release(connection, reusable);
+            }
+        }
+        return batch.failures;
+    }
+
+    private void deliver(SmtpConnection connection, Batch batch) throws IOException {
+        int pending = -1;
+        String pendingData = null;
+        boolean dirty = false;
+        try {
+            while (true) {
+                int current = -1;
+                String currentData = null;
+                while (current < 0 && batch.next < batch.messages.size()
+                        && connection.messages() + (pending >= 0 ? 1 : 0) < settings.maxMessagesPerConnection()) {
+                    try {
+                        currentData = encode(batch.messages.get(batch.next));
+                        current = batch.next;
+                    } catch (IllegalArgumentException e) {
+                        batch.fail(batch.next, e);
+                        batch.next++;
+                    }
+                }
+                if (pending < 0 && current < 0) {
+                    break;
+                }
+                List<String> chunks = new ArrayList<>(5);
+                if (pending >= 0) {
+                    chunks.add(pendingData);
+                }
+                if (current >= 0) {
+                    if (dirty) {
+                        chunks.add(SmtpConnection.command("RSET"));
+                    }
+                    chunks.add(SmtpConnection.command("MAIL FROM:<" + settings.from() + ">"));
+                    chunks.add(SmtpConnection.command("RCPT TO:<" + batch.messages.get(current).to().trim() + ">"));
+                    chunks.add(SmtpConnection.command("DATA"));
+                }
+                List<SmtpConnection.Reply> replies;
+                try {
+                    replies = connection.exchange(chunks);
+                    connection.used();
+                } catch (SmtpConnection.BrokenException e) {
+                    if (pending >= 0 && !e.replies().isEmpty()) {
+                        settle(connection, batch, pending, e.replies().get(0));
+                        pending = -1;
+                    }
+                    throw e;
+                }
+                int r = 0;
+                if (pending >= 0) {
+                    settle(connection, batch, pending, replies.get(r++));
+                    pending = -1;
+                    pendingData = null;
+                }
+                if (current >= 0) {
+                    if (dirty) {
+                        r++;
+                        dirty = false;
+                    }
+                    SmtpConnection.Reply mail = replies.get(r++);
+                    SmtpConnection.Reply rcpt = replies.get(r++);
+                    SmtpConnection.Reply data = replies.get(r);
+                    batch.next = current + 1;
+                    if (data.code() == 354) {
+                        pending = current;
+                        pendingData = currentData;
+                    } else {
+                        reject(batch, current, !mail.positive() ? mail : !rcpt.positive() ? rcpt : data);
+                        dirty = true;
+                    }
+                }
+            }
+            if (dirty) {
+                connection.exchange(List.of(SmtpConnection.command("RSET")));
+            }
+        } catch (IOException e) {
+            if (pending >= 0) {
+                batch.fail(pending, new RuntimeException("Failed to send email: connection lost after message data", e));
+            }
+            throw e;
+        }
+    }
+
+    private void settle(SmtpConnection connection, Batch batch, int index, SmtpConnection.Reply reply) {
+        connection.delivered();
+        if (reply.code() == 250) {
+            batch.sent();
+            sent.increment();
+        } else {
+            reject(batch, index, reply);
+        }
+    }
+
+    private void reject(Batch batch, int index, SmtpConnection.Reply reply) {
+        rejected.increment();
+        batch.fail(index, new RuntimeException("Failed to send email: SMTP server replied " + reply));
+    }
+
+    private String encode(EmailMessage message) {
+        String to = message.to() == null ? "" : message.to().trim();
+        if (to.isEmpty() || !to.chars().allMatch(c -> c > 32 && c < 127 && c != '<' && c != '>')) {
+            throw new IllegalArgumentException("Invalid recipient address: " + to);
+        }
+        String subject = message.subject() == null ? "" : message.subject();
+        if (subject.indexOf('\r') >= 0 || subject.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Subject must not contain line breaks");
+        }
+        String body = message.body() == null ? "" : message.body();
+        StringBuilder data = new StringBuilder(body.length() * 4 / 3 + 512);
+        data.append("From: <").append(settings.from()).append(">\r\n");
+        data.append("To: <").append(to).append(">\r\n");
+        data.append("Subject: ").append(encodeHeader(subject)).append("\r\n");
+        data.append("Date: ").append(DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now())).append("\r\n");
+        data.append("Message-ID: <").append(UUID.randomUUID()).append('@').append(settings.heloName()).append(">\r\n");
+        data.append("MIME-Version: 1.0\r\n");
+        data.append("Content-Type: text/plain; charset=UTF-8\r\n");
+        data.append("Content-Transfer-Encoding: base64\r\n\r\n");
+        String encoded = Base64.getMimeEncoder().encodeToString(body.replace("\r\n", "\n").replace("\n", "\r\n").getBytes(StandardCharsets.UTF_8));
+        if (!encoded.isEmpty()) {
+            data.append(encoded).append("\r\n");
+        }
+        return data.append(".\r\n").toString();
+    }
+
+    private static String encodeHeader(String value) {
+        if (value.chars().allMatch(c -> c >= 32 && c < 127)) {
+            return value;
+        }
+        StringBuilder header = new StringBuilder();
+        StringBuilder word = new StringBuilder();
+        int bytes = 0;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            String character = new String(Character.toChars(codePoint));
+            int size = character.getBytes(StandardCharsets.UTF_8).length;
+            if (bytes + size > 45) {
+                appendWord(header, word);
+                word.setLength(0);
+                bytes = 0;
+            }
+            word.append(character);
+            bytes += size;
+            i += Character.charCount(codePoint);
+        }
+        appendWord(header, word);
+        return header.toString();
+    }
+
+    private static void appendWord(StringBuilder header, StringBuilder word) {
+        if (!header.isEmpty()) {
+            header.append("\r\n ");
+        }
+        header.append("=?UTF-8?B?")
+                .append(Base64.getEncoder().encodeToString(word.toString().getBytes(StandardCharsets.UTF_8)))
+                .append("?=");
+    }
+
+    private SmtpConnection borrow() {
+        try {
+            if (!permits.tryAcquire(settings.timeoutMillis(), TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("Failed to send email: no SMTP connection available");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Failed to send email", e);
+        }
+        SmtpConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            if (connection.idleNanos() < idleNanos) {
+                return connection;
+            }
+            connection.quit();
+        }
+        long start = System.nanoTime();
+        try {
+            connection = SmtpConnection.open(settings, tlsFactory);
+            connectLatency.recordNanos(System.nanoTime() - start);
+            opened.increment();
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            connectionErrors.increment();
+            throw new RuntimeException("Failed to connect to SMTP server " + settings.host() + ":" + settings.port(), e);
+        }
+    }
+
+    private void closeIdle() {
+        SmtpConnection connection;
+        while ((connection = idle.pollFirst()) != null) {
+            connection.quit();
+        }
+    }
+
+    private void release(SmtpConnection connection, boolean reusable) {
+        if (reusable) {
+            idle.offerFirst(connection);
+        } else {
+            connection.quit();
+        }
+        permits.release();
+    }
+
+    private static final class Batch {
+        private final List<EmailMessage> messages;
+        private final Map<Integer, RuntimeException> failures = new HashMap<>();
+        private int next;
+        private int settled;
+
+        Batch(List<EmailMessage> messages) {
+            this.messages = messages;
+        }
+
+        void sent() {
+            settled++;
+        }
+
+        void fail(int index, RuntimeException e) {
+            failures.put(index, e);
+            settled++;
+        }
+
+        void failRemaining(RuntimeException e) {
+            while (next < messages.size()) {
+                fail(next++, e);
+            }
+        }
+
+        int settled() {
+            return settled;
+        }
+    }
+}
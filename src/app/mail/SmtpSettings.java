@@ -0,0 +1,34 @@
+package app.mail;
+
+import app.log.Log;
+import app.util.Env;
+
+import java.util.Locale;
+
+public record SmtpSettings(String host, int port, Tls tls, String username, String password, String from, String heloName,
+                           int poolSize, int timeoutMillis, long idleMillis, int maxMessagesPerConnection) {
+    public enum Tls { NONE, STARTTLS, IMPLICIT }
+
+    public static SmtpSettings fromEnv() {
+        String mode = Env.string("SMTP_TLS", "starttls").toUpperCase(Locale.ROOT);
+        Tls tls;
+        try {
+            tls = Tls.valueOf(mode);
+        } catch (IllegalArgumentException e) {
+            Log.warn("config.invalid", "name", "SMTP_TLS", "value", mode, "fallback", "starttls");
+            tls = Tls.STARTTLS;
+        }
+        return new SmtpSettings(
+                Env.string("SMTP_HOST", "localhost"),
+                Env.intValue("SMTP_PORT", tls == Tls.IMPLICIT ? 465 : 587),
+                tls,
+                Env.string("SMTP_USER", ""),
+                Env.string("SMTP_PASS", ""),
+                Env.string("SMTP_FROM", "no-reply@localhost"),
+                Env.string("SMTP_HELO", "localhost"),
+                Math.max(1, Env.intValue("SMTP_POOL_SIZE", 4)),
+                Math.max(100, Env.intValue("SMTP_TIMEOUT_MS", 10_000)),
+                Math.max(0, Env.longValue("SMTP_IDLE_MS", 30_000)),
+                Math.max(1, Env.intValue("SMTP_MAX_MESSAGES_PER_CONNECTION", 500)));
+    }
+}
@@ -0,0 +1,71 @@
+package app.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyHistogram {
+    private static final long[] BOUNDS_MICROS = {
+            500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000,
+            1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private final LongAdder[] buckets = new LongAdder[BOUNDS_MICROS.length + 1];
+    private final LongAdder sumMicros = new LongAdder();
+    private final LongAdder count = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1_000);
+        int index = 0;
+        while (index < BOUNDS_MICROS.length && micros > BOUNDS_MICROS[index]) {
+            index++;
+        }
+        buckets[index].increment();
+        sumMicros.add(micros);
+        count.increment();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    public double meanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : sumMicros.sum() / 1_000.0 / n;
+    }
+
+    public long percentileMicros(double percentile) {
+        long total = count.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                return BOUNDS_MICROS[i];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    void render(StringBuilder sb, String name, String labels) {
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < BOUNDS_MICROS.length; i++) {
+            cumulative += buckets[i].sum();
+            sb.append(name).append("_bucket{").append(prefix).append("le=\"")
+                    .append(BOUNDS_MICROS[i] / 1_000_000.0).append("\"} ").append(cumulative).append('\n');
+        }
+        cumulative += buckets[BOUNDS_MICROS.length].sum();
+        sb.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+        String suffix = labels.isEmpty() ? "" : "{" + labels + "}";
+        sb.append(name).append("_sum").append(suffix).append(' ').append(sumMicros.sum() / 1_000_000.0).append('\n');
+        sb.append(name).append("_count").append(suffix).append(' ').append(count.sum()).append('\n');
+    }
+}
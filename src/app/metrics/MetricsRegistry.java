@@ -0,0 +1,84 @@
+package app.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+public class MetricsRegistry {
+    private final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    public LongAdder counter(String name, String help) {
+        return counter(name, "", help);
+    }
+
+    public LongAdder counter(String name, String labels, String help) {
+        Family family = family(name, "counter", help);
+        LongAdder adder = family.counters.computeIfAbsent(labels, k -> new LongAdder());
+        family.series.putIfAbsent(labels, adder::sum);
+        return adder;
+    }
+
+    public void gauge(String name, String help, LongSupplier supplier) {
+        gauge(name, "", help, supplier);
+    }
+
+    public void gauge(String name, String labels, String help, LongSupplier supplier) {
+        family(name, "gauge", help).series.put(labels, supplier);
+    }
+
+    public LatencyHistogram histogram(String name, String help) {
+        return histogram(name, "", help);
+    }
+
+    public LatencyHistogram histogram(String name, String labels, String help) {
+        return family(name, "histogram", help).histograms.computeIfAbsent(labels, k -> new LatencyHistogram());
+    }
+
+    public static String label(String key, String value) {
+        String safe = value == null ? "" : value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return key + "=\"" + safe + "\"";
+    }
+
+    public String render() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            sb.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, LongSupplier> series : family.series.entrySet()) {
+                sb.append(name);
+                if (!series.getKey().isEmpty()) {
+                    sb.append('{').append(series.getKey()).append('}');
+                }
+                sb.append(' ').append(series.getValue().getAsLong()).append('\n');
+            }
+            for (Map.Entry<String, LatencyHistogram> series : family.histograms.entrySet()) {
+                series.getValue().render(sb, name, series.getKey());
+            }
+        }
+        return sb.toString();
+    }
+
+    private Family family(String name, String type, String help) {
+        Family family = families.computeIfAbsent(name, k -> new Family(type, help));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " already registered as " + family.type);
+        }
+        return family;
+    }
+
+    private static final class Family {
+        private final String type;
+        private final String help;
+        private final Map<String, LongSupplier> series = new ConcurrentSkipListMap<>();
+        private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+        private final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+        private Family(String type, String help) {
+            this.type = type;
+            this.help = help;
+        }
+    }
+}
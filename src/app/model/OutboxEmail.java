@@ -0,0 +1,6 @@
+package app.model;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record OutboxEmail(UUID id, String recipient, String subject, String body, int attempts, LocalDateTime createdAt) {}
@@ -1,5 +1,6 @@
 package app.nlp;
 
+import app.log.Log;
 import opennlp.tools.postag.POSModel;
 import opennlp.tools.postag.POSTaggerME;
 import opennlp.tools.tokenize.SimpleTokenizer;
@@ -73,7 +74,7 @@ public class MedicationNlp {
             } catch (IOException ignored) {
             }
         }
-        System.out.println("OpenNLP tokenizer model missing; falling back to simple tokenization.");
+        Log.warn("nlp.model_missing", "model", "tokenizer", "fallback", "simple tokenization");
         return SimpleTokenizer.INSTANCE;
     }
 
@@ -84,7 +85,7 @@ public class MedicationNlp {
             } catch (IOException ignored) {
             }
         }
-        System.out.println("OpenNLP POS model missing; medication extraction will be less accurate.");
+        Log.warn("nlp.model_missing", "model", "pos", "fallback", "less accurate medication extraction");
         return null;
     }
 
@@ -0,0 +1,169 @@
+package app.session;
+
+import app.log.Log;
+import app.metrics.MetricsRegistry;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class InMemorySessionStore implements SessionStore {
+    private static final int EVICTION_SAMPLE = 8;
+    private static final long TICK_MILLIS = 1000;
+
+    private static final class Session {
+        private final String id;
+        private final String username;
+        private final long createdAt;
+        private volatile long lastSeen;
+        private volatile TimingWheel.Timer<Session> timer;
+
+        private Session(String id, String username, long now) {
+            this.id = id;
+            this.username = username;
+            this.createdAt = now;
+            this.lastSeen = now;
+        }
+    }
+
+    private final String name;
+    private final long absoluteTtlNanos;
+    private final long idleTtlNanos;
+    private final int maxEntries;
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final TimingWheel<Session> wheel;
+    private final Thread sweeper;
+    private final LongAdder created;
+    private final LongAdder expired;
+    private final LongAdder evicted;
+
+    public InMemorySessionStore(String name, SessionSettings settings, MetricsRegistry metrics) {
+        this.name = name;
+        this.absoluteTtlNanos = settings.absoluteTtlNanos();
+        this.idleTtlNanos = settings.idleTtlNanos();
+        this.maxEntries = settings.maxEntries();
+        this.wheel = new TimingWheel<>(TICK_MILLIS, TimeUnit.MILLISECONDS, System.nanoTime());
+        String labels = MetricsRegistry.label("store", name);
+        this.created = metrics.counter("sessions_created_total", labels, "Sessions created.");
+        this.expired = metrics.counter("sessions_expired_total", labels, "Sessions removed after their absolute or idle TTL.");
+        this.evicted = metrics.counter("sessions_evicted_total", labels, "Sessions evicted to stay under the entry limit.");
+        metrics.gauge("sessions_active", labels, "Sessions currently held.", sessions::size);
+        metrics.gauge("session_timers_pending", labels, "Expiry timers scheduled on the timing wheel.", wheel::size);
+        this.sweeper = new Thread(this::sweep, "session-sweeper-" + name);
+        this.sweeper.setDaemon(true);
+        this.sweeper.start();
+    }
+
+    @Override
+    public String create(String username) {
+        long now = System.nanoTime();
+        Session session = new Session(UUID.randomUUID().toString(), username, now);
+        sessions.put(session.id, session);
+        session.timer = wheel.schedule(session, deadline(session));
+        created.increment();
+        if (sessions.size() > maxEntries) {
+            evictIdlest(session);
+        }
+        return session.id;
+    }
+
+    @Override
+    public Optional<String> resolve(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) {
+            return Optional.empty();
+        }
+        long now = System.nanoTime();
+        if (now - deadline(session) >= 0) {
+            if (remove(session)) {
+                expired.increment();
+            }
+            return Optional.empty();
+        }
+        session.lastSeen = now;
+        return Optional.of(session.username);
+    }
+
+    @Override
+    public void invalidate(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session != null) {
+            remove(session);
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.interrupt();
+    }
+
+    private long deadline(Session session) {
+        long absolute = session.createdAt + absoluteTtlNanos;
+        if (idleTtlNanos == Long.MAX_VALUE) {
+            return absolute;
+        }
+        long idle = session.lastSeen + idleTtlNanos;
+        return idle - absolute < 0 ? idle : absolute;
+    }
+
+    private boolean remove(Session session) {
+        if (!sessions.remove(session.id, session)) {
+            return false;
+        }
+        TimingWheel.Timer<Session> timer = session.timer;
+        if (timer != null) {
+            wheel.cancel(timer);
+        }
+        return true;
+    }
+
+    private void evictIdlest(Session keep) {
+        Session victim = null;
+        Iterator<Session> it = sessions.values().iterator();
+        for (int i = 0; i < EVICTION_SAMPLE && it.hasNext(); i++) {
+            Session candidate = it.next();
+            if (candidate != keep && (victim == null || candidate.lastSeen - victim.lastSeen < 0)) {
+                victim = candidate;
+            }
+        }
+        if (victim != null && remove(victim)) {
+            evicted.increment();
+        }
+    }
+
+    private void sweep() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(TICK_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                long now = System.nanoTime();
+                List<TimingWheel.Timer<Session>> due = wheel.advance(now);
+                for (TimingWheel.Timer<Session> timer : due) {
+                    Session session = timer.value();
+                    if (sessions.get(session.id) != session) {
+                        continue;
+                    }
+                    long deadline = deadline(session);
+                    if (now - deadline >= 0) {
+                        if (remove(session)) {
+                            expired.increment();
+                        }
+                    } else {
+                        wheel.reschedule(timer, deadline);
+                    }
+                }
+            } catch (RuntimeException e) {
+                Log.error("session.sweep_failed", e, "store", name);
+            }
+        }
+    }
+}
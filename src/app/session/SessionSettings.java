@@ -0,0 +1,22 @@
+package app.session;
+
+import app.util.Env;
+
+import java.util.concurrent.TimeUnit;
+
+public record SessionSettings(long absoluteTtlSeconds, long idleTtlSeconds, int maxEntries) {
+    public static SessionSettings fromEnv() {
+        return new SessionSettings(
+                Math.max(1, Env.longValue("SESSION_TTL_SECONDS", TimeUnit.HOURS.toSeconds(24))),
+                Math.max(0, Env.longValue("SESSION_IDLE_SECONDS", TimeUnit.HOURS.toSeconds(2))),
+                Math.max(1, Env.intValue("SESSION_MAX_ENTRIES", 100_000)));
+    }
+
+    public long absoluteTtlNanos() {
+        return TimeUnit.SECONDS.toNanos(absoluteTtlSeconds);
+    }
+
+    public long idleTtlNanos() {
+        return idleTtlSeconds == 0 ? Long.MAX_VALUE : TimeUnit.SECONDS.toNanos(idleTtlSeconds);
+    }
+}
@@ -0,0 +1,14 @@
+package app.session;
+
+import java.util.Optional;
+
+public interface SessionStore {
+    String create(String username);
+
+    Optional<String> resolve(String sessionId);
+
+    void invalidate(String sessionId);
+
+    default void close() {
+    }
+}
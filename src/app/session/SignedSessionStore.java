@@ -0,0 +1,155 @@
+package app.session;
+
+import app.metrics.MetricsRegistry;
+import app.util.HmacSigner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class SignedSessionStore implements SessionStore {
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 1 + 1 + 4 + 4 + 8;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private record SigningKey(byte id, HmacSigner signer) {}
+
+    private record Claims(String username, long issuedAt, long expiresAt, long nonce) {}
+
+    private final SigningKey current;
+    private final SigningKey previous;
+    private final long ttlSeconds;
+    private final long graceSeconds;
+    private final int maxRevoked;
+    private final SecureRandom random = new SecureRandom();
+    private final Map<Long, Long> revoked = new ConcurrentHashMap<>();
+    private final Map<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private final LongAdder issued;
+    private final LongAdder rejected;
+    private final LongAdder acceptedPrevious;
+    private final LongAdder revokedByUser;
+
+    public SignedSessionStore(String kind, String secret, String previousSecret, long graceSeconds,
+                              SessionSettings settings, int maxRevoked, MetricsRegistry metrics) {
+        this.current = signingKey(kind, secret);
+        this.previous = previousSecret == null || previousSecret.isBlank() ? null : signingKey(kind, previousSecret);
+        this.ttlSeconds = settings.absoluteTtlSeconds();
+        this.graceSeconds = Math.max(0, graceSeconds);
+        this.maxRevoked = Math.max(1, maxRevoked);
+        String labels = MetricsRegistry.label("store", kind);
+        this.issued = metrics.counter("sessions_created_total", labels, "Sessions created.");
+        this.rejected = metrics.counter("sessions_token_rejected_total", labels, "Session tokens rejected as malformed, forged, expired or revoked.");
+        this.acceptedPrevious = metrics.counter("sessions_token_previous_key_total", labels, "Session tokens accepted with the previous signing key.");
+        this.revokedByUser = metrics.counter("sessions_revoked_by_user_total", labels, "Logouts that revoked every earlier token of the user because the revocation list was full.");
+        metrics.gauge("sessions_revoked_entries", labels, "Logged-out tokens remembered until they expire.", revoked::size);
+        metrics.gauge("sessions_revoked_users", labels, "Users whose tokens up to a logout are revoked wholesale.", revokedBefore::size);
+    }
+
+    @Override
+    public String create(String username) {
+        byte[] name = username.getBytes(StandardCharsets.UTF_8);
+        long now = nowSeconds();
+        ByteBuffer payload = ByteBuffer.allocate(HEADER_BYTES + name.length);
+        payload.put(VERSION)
+                .put(current.id())
+                .putInt((int) now)
+                .putInt((int) (now + ttlSeconds))
+                .putLong(random.nextLong())
+                .put(name);
+        byte[] bytes = payload.array();
+        issued.increment();
+        return ENCODER.encodeToString(bytes) + "." + ENCODER.encodeToString(current.signer().sign(bytes));
+    }
+
+    @Override
+    public Optional<String> resolve(String token) {
+        Claims claims = verify(token);
+        if (claims == null || nowSeconds() >= claims.expiresAt() || revoked.containsKey(claims.nonce())
+                || claims.issuedAt() <= revokedBefore.getOrDefault(claims.username(), -1L)) {
+            rejected.increment();
+            return Optional.empty();
+        }
+        return Optional.of(claims.username());
+    }
+
+    @Override
+    public void invalidate(String token) {
+        Claims claims = verify(token);
+        if (claims == null) {
+            return;
+        }
+        if (revoked.size() >= maxRevoked) {
+            purgeExpired(nowSeconds());
+        }
+        if (revoked.size() < maxRevoked) {
+            revoked.put(claims.nonce(), claims.expiresAt());
+            return;
+        }
+        // The list is full: revoke this token and every earlier one of the same user instead.
+        // That costs one entry per user, so one account's logouts cannot crowd out anyone else's.
+        revokedBefore.merge(claims.username(), claims.issuedAt(), Math::max);
+        revokedByUser.increment();
+    }
+
+    private Claims verify(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, dot));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (payload.length <= HEADER_BYTES || payload[0] != VERSION) {
+            return null;
+        }
+        byte keyId = payload[1];
+        boolean signedWithCurrent = current.id() == keyId
+                && current.signer().verify(payload, 0, payload.length, signature, 0, signature.length);
+        boolean signedWithPrevious = !signedWithCurrent && previous != null && previous.id() == keyId
+                && previous.signer().verify(payload, 0, payload.length, signature, 0, signature.length);
+        if (!signedWithCurrent && !signedWithPrevious) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(payload, 2, payload.length - 2);
+        long issuedAt = Integer.toUnsignedLong(buffer.getInt());
+        long expiresAt = Integer.toUnsignedLong(buffer.getInt());
+        long nonce = buffer.getLong();
+        if (signedWithPrevious) {
+            if (nowSeconds() >= issuedAt + graceSeconds) {
+                return null;
+            }
+            acceptedPrevious.increment();
+        }
+        String username = new String(payload, HEADER_BYTES, payload.length - HEADER_BYTES, StandardCharsets.UTF_8);
+        return new Claims(username, issuedAt, expiresAt, nonce);
+    }
+
+    private void purgeExpired(long now) {
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+        revokedBefore.values().removeIf(issuedAt -> issuedAt + ttlSeconds <= now);
+    }
+
+    private static SigningKey signingKey(String kind, String secret) {
+        byte[] derived = HmacSigner.of(secret).sign(("session:" + kind).getBytes(StandardCharsets.UTF_8));
+        return new SigningKey(derived[0], new HmacSigner(derived));
+    }
+
+    private static long nowSeconds() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,162 @@
+package app.session;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+final class TimingWheel<T> {
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    static final class Timer<T> {
+        private final T value;
+        private long deadlineTick;
+        private Timer<T> prev;
+        private Timer<T> next;
+        private Timer<T>[] bucket;
+        private int slot;
+
+        private Timer(T value) {
+            this.value = value;
+        }
+
+        T value() {
+            return value;
+        }
+    }
+
+    private final long tickNanos;
+    private final long origin;
+    private final Timer<T>[][] wheels;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tick, TimeUnit unit, long nowNanos) {
+        this.tickNanos = Math.max(1, unit.toNanos(tick));
+        this.origin = nowNanos;
+        this.wheels = (Timer<T>[][]) new Timer<?>[LEVELS][SLOTS];
+    }
+
+    synchronized Timer<T> schedule(T value, long deadlineNanos) {
+        Timer<T> timer = new Timer<>(value);
+        timer.deadlineTick = tickOf(deadlineNanos);
+        place(timer);
+        size++;
+        return timer;
+    }
+
+    synchronized void reschedule(Timer<T> timer, long deadlineNanos) {
+        if (timer.bucket != null) {
+            unlink(timer);
+        } else {
+            size++;
+        }
+        timer.deadlineTick = tickOf(deadlineNanos);
+        place(timer);
+    }
+
+    synchronized boolean cancel(Timer<T> timer) {
+        if (timer.bucket == null) {
+            return false;
+        }
+        unlink(timer);
+        size--;
+        return true;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    List<Timer<T>> advance(long nowNanos) {
+        List<Timer<T>> expired = new ArrayList<>();
+        synchronized (this) {
+            long target = Math.max(currentTick, (nowNanos - origin) / tickNanos);
+            while (currentTick < target) {
+                currentTick++;
+                cascade();
+                int slot = (int) (currentTick & SLOT_MASK);
+                Timer<T> timer = wheels[0][slot];
+                wheels[0][slot] = null;
+                while (timer != null) {
+                    Timer<T> next = timer.next;
+                    timer.prev = null;
+                    timer.next = null;
+                    timer.bucket = null;
+                    size--;
+                    expired.add(timer);
+                    timer = next;
+                }
+            }
+        }
+        return expired;
+    }
+
+    private void cascade() {
+        for (int level = LEVELS - 1; level > 0; level--) {
+            long span = 1L << (SLOT_BITS * level);
+            if ((currentTick & (span - 1)) != 0) {
+                continue;
+            }
+            int slot = (int) ((currentTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+            Timer<T> timer = wheels[level][slot];
+            wheels[level][slot] = null;
+            while (timer != null) {
+                Timer<T> next = timer.next;
+                timer.prev = null;
+                timer.next = null;
+                timer.bucket = null;
+                place(timer);
+                timer = next;
+            }
+        }
+    }
+
+    private void place(Timer<T> timer) {
+        long delta = timer.deadlineTick - currentTick;
+        if (delta <= 0) {
+            timer.deadlineTick = currentTick + 1;
+            delta = 1;
+        } else if (delta > MAX_DELTA) {
+            timer.deadlineTick = currentTick + MAX_DELTA;
+            delta = MAX_DELTA;
+        }
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        int slot = (int) ((timer.deadlineTick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        Timer<T>[] bucket = wheels[level];
+        timer.bucket = bucket;
+        timer.slot = slot;
+        timer.prev = null;
+        timer.next = bucket[slot];
+        if (timer.next != null) {
+            timer.next.prev = timer;
+        }
+        bucket[slot] = timer;
+    }
+
+    private void unlink(Timer<T> timer) {
+        if (timer.prev != null) {
+            timer.prev.next = timer.next;
+        } else {
+            timer.bucket[timer.slot] = timer.next;
+        }
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.bucket = null;
+    }
+
+    private long tickOf(long nanos) {
+        long elapsed = nanos - origin;
+        return elapsed <= 0 ? 0 : (elapsed + tickNanos - 1) / tickNanos;
+    }
+}
@@ -0,0 +1,61 @@
+package app.util;
+
+import app.log.Log;
+
+import java.util.function.Consumer;
+
+public final class Env {
+    private Env() {
+    }
+
+    public static String string(String name, String fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        return value.trim();
+    }
+
+    public static int intValue(String name, int fallback) {
+        return intValue(name, fallback, message -> Log.warn("config.invalid", "name", name, "fallback", fallback));
+    }
+
+    /**
+     * Parses an int without going through {@link Log}, for code that runs before the logger exists.
+     * {@code invalid} receives a human-readable message when the value is not a number.
+     */
+    public static int intValue(String name, int fallback, Consumer<String> invalid) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            invalid.accept("Invalid " + name + " env var, falling back to " + fallback);
+            return fallback;
+        }
+    }
+
+    public static long longValue(String name, long fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            Log.warn("config.invalid", "name", name, "fallback", fallback);
+            return fallback;
+        }
+    }
+
+    public static boolean flag(String name, boolean fallback) {
+        String value = System.getenv(name);
+        if (value == null || value.isBlank()) {
+            return fallback;
+        }
+        String normalized = value.trim().toLowerCase();
+        return normalized.equals("true") || normalized.equals("1") || normalized.equals("yes") || normalized.equals("on");
+    }
+}
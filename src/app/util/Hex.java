@@ -0,0 +1,103 @@
+package app.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+public final class Hex {
+    private static final byte[] DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VALUES = new byte[128];
+
+    static {
+        Arrays.fill(VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) {
+            VALUES['0' + i] = (byte) i;
+        }
+        for (int i = 0; i < 6; i++) {
+            VALUES['a' + i] = (byte) (10 + i);
+            VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
+    private Hex() {
+    }
+
+    public static String encode(byte[] bytes) {
+        byte[] out = new byte[bytes.length * 2];
+        encode(bytes, 0, bytes.length, out, 0);
+        return new String(out, StandardCharsets.ISO_8859_1);
+    }
+
+    public static int encode(byte[] bytes, int offset, int length, byte[] out, int outOffset) {
+        int position = outOffset;
+        for (int i = offset; i < offset + length; i++) {
+            int b = bytes[i] & 0xff;
+            out[position++] = DIGITS[b >>> 4];
+            out[position++] = DIGITS[b & 0xf];
+        }
+        return position;
+    }
+
+    public static int encodeLong(long value, byte[] out, int outOffset) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            out[outOffset++] = DIGITS[(int) (value >>> shift) & 0xf];
+        }
+        return outOffset;
+    }
+
+    public static int encodeUuid(UUID uuid, byte[] out, int outOffset) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        int position = outOffset;
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            if (shift == 28 || shift == 12) {
+                out[position++] = '-';
+            }
+            out[position++] = DIGITS[(int) (msb >>> shift) & 0xf];
+        }
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            if (shift == 60 || shift == 44) {
+                out[position++] = '-';
+            }
+            out[position++] = DIGITS[(int) (lsb >>> shift) & 0xf];
+        }
+        return position;
+    }
+
+    public static byte[] decode(CharSequence hex) {
+        return decode(hex, 0, hex.length());
+    }
+
+    public static byte[] decode(CharSequence hex, int start, int end) {
+        int length = end - start;
+        if ((length & 1) != 0) {
+            return null;
+        }
+        byte[] out = new byte[length / 2];
+        for (int i = 0; i < out.length; i++) {
+            int high = value(hex.charAt(start + i * 2));
+            int low = value(hex.charAt(start + i * 2 + 1));
+            if ((high | low) < 0) {
+                return null;
+            }
+            out[i] = (byte) ((high << 4) | low);
+        }
+        return out;
+    }
+
+    public static long decodeLong(CharSequence hex, int start) {
+        long value = 0;
+        for (int i = start; i < start + 16; i++) {
+            int digit = value(hex.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid hex digit");
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
+    }
+
+    private static int value(char c) {
+        return c < 128 ? VALUES[c] : -1;
+    }
+}
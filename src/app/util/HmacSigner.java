@@ -0,0 +1,89 @@
+package app.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public final class HmacSigner {
+    public static final int SIGNATURE_BYTES = 32;
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final BlockingQueue<Mac> pool;
+
+    public HmacSigner(byte[] secret) {
+        this.key = new SecretKeySpec(secret, ALGORITHM);
+        this.pool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+        pool.offer(newMac());
+    }
+
+    public static HmacSigner of(String secret) {
+        return new HmacSigner(secret.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] sign(byte[] data) {
+        return sign(data, 0, data.length);
+    }
+
+    public byte[] sign(byte[] data, int offset, int length) {
+        Mac mac = acquire();
+        try {
+            mac.update(data, offset, length);
+            return mac.doFinal();
+        } finally {
+            release(mac);
+        }
+    }
+
+    public void sign(byte[] data, int offset, int length, byte[] out, int outOffset) {
+        Mac mac = acquire();
+        try {
+            mac.update(data, offset, length);
+            mac.doFinal(out, outOffset);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalArgumentException("Signature buffer too small", e);
+        } finally {
+            release(mac);
+        }
+    }
+
+    public boolean verify(byte[] data, int offset, int length, byte[] signature, int signatureOffset, int signatureLength) {
+        if (signatureLength != SIGNATURE_BYTES) {
+            return false;
+        }
+        byte[] expected = sign(data, offset, length);
+        int diff = 0;
+        for (int i = 0; i < SIGNATURE_BYTES; i++) {
+            diff |= expected[i] ^ signature[signatureOffset + i];
+        }
+        return diff == 0;
+    }
+
+    public static boolean constantTimeEquals(byte[] a, byte[] b) {
+        return MessageDigest.isEqual(a, b);
+    }
+
+    private Mac acquire() {
+        Mac mac = pool.poll();
+        return mac == null ? newMac() : mac;
+    }
+
+    private void release(Mac mac) {
+        mac.reset();
+        pool.offer(mac);
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package app.view;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface HtmlView {
+    void render(HtmlWriter html) throws IOException;
+}
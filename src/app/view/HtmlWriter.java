@@ -0,0 +1,150 @@
+package app.view;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public final class HtmlWriter implements Closeable {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final BlockingQueue<byte[]> POOL = new ArrayBlockingQueue<>(64);
+    private static final byte[] AMP = fragment("&amp;");
+    private static final byte[] LT = fragment("&lt;");
+    private static final byte[] GT = fragment("&gt;");
+    private static final byte[] QUOT = fragment("&quot;");
+    private static final byte[] BR = fragment("<br>");
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int position;
+
+    private HtmlWriter(OutputStream out, byte[] buffer) {
+        this.out = out;
+        this.buffer = buffer;
+    }
+
+    public static HtmlWriter open(OutputStream out) {
+        byte[] buffer = POOL.poll();
+        return new HtmlWriter(out, buffer == null ? new byte[BUFFER_SIZE] : buffer);
+    }
+
+    public static byte[] fragment(String markup) {
+        return markup.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public HtmlWriter raw(byte[] fragment) throws IOException {
+        if (fragment.length > buffer.length - position) {
+            drain();
+            if (fragment.length > buffer.length) {
+                out.write(fragment);
+                return this;
+            }
+        }
+        System.arraycopy(fragment, 0, buffer, position, fragment.length);
+        position += fragment.length;
+        return this;
+    }
+
+    public HtmlWriter text(String value) throws IOException {
+        return escape(value, false);
+    }
+
+    public HtmlWriter lines(String value) throws IOException {
+        return escape(value, true);
+    }
+
+    public HtmlWriter number(long value) throws IOException {
+        String digits = Long.toString(value);
+        ensure(digits.length());
+        for (int i = 0; i < digits.length(); i++) {
+            buffer[position++] = (byte) digits.charAt(i);
+        }
+        return this;
+    }
+
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            drain();
+            out.close();
+        } finally {
+            POOL.offer(buffer);
+            buffer = null;
+        }
+    }
+
+    private HtmlWriter escape(String value, boolean breakLines) throws IOException {
+        if (value == null) {
+            return this;
+        }
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '&' -> raw(AMP);
+                    case '<' -> raw(LT);
+                    case '>' -> raw(GT);
+                    case '"' -> raw(QUOT);
+                    case '\n' -> {
+                        if (breakLines) {
+                            raw(BR);
+                        } else {
+                            ensure(1);
+                            buffer[position++] = '\n';
+                        }
+                    }
+                    default -> {
+                        if (position == buffer.length) {
+                            drain();
+                        }
+                        buffer[position++] = (byte) c;
+                    }
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buffer[position++] = (byte) (0xc0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                ensure(1);
+                buffer[position++] = '?';
+            } else {
+                ensure(3);
+                buffer[position++] = (byte) (0xe0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[position++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return this;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.length - position < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
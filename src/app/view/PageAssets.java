@@ -0,0 +1,133 @@
+package app.view;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.List;
+
+public final class PageAssets {
+    public record Asset(String path, byte[] bytes) {
+        public String url() {
+            return "/" + path;
+        }
+    }
+
+    public static final Asset STYLESHEET = asset("pages", "css", """
+            body { font-family: Arial, sans-serif; max-width: 900px; margin: 40px auto; padding: 0 16px; background: #f4f6f8; color: #12212f; }
+            header { display: flex; justify-content: space-between; align-items: center; margin-bottom: 20px; }
+            nav a { margin-right: 10px; text-decoration: none; color: #0b6bd1; }
+            .card { background: #fff; padding: 16px; margin-bottom: 16px; border-radius: 10px; box-shadow: 0 4px 10px rgba(0,0,0,0.06); }
+            .layout { display: grid; grid-template-columns: 280px 1fr; gap: 16px; align-items: start; }
+            form { display: grid; gap: 10px; }
+            input, textarea, button, select { padding: 10px; border-radius: 6px; border: 1px solid #d0d7de; font-size: 14px; }
+            button { background: #0b6bd1; color: white; border: none; cursor: pointer; }
+            button:hover { background: #084f9c; }
+            .patient-btn { display: block; width: 100%; text-align: left; background: #e8f1ff; color: #0b3d91; border: 1px solid #c8dcff; margin-bottom: 8px; padding: 8px 10px; border-radius: 8px; }
+            table { width: 100%; border-collapse: collapse; margin-top: 10px; }
+            th, td { padding: 8px; border-bottom: 1px solid #e4e7eb; }
+            .search-row { display: flex; gap: 8px; align-items: center; margin-bottom: 10px; }
+            .search-row input { flex: 1; }
+            .pager { display: flex; justify-content: space-between; gap: 8px; margin-top: 8px; }
+            .muted { color: #5f6b7a; font-size: 13px; }
+            .history-card { background: #f9fbff; border: 1px solid #e0e7ff; padding: 10px; border-radius: 8px; margin-bottom: 8px; }
+            .history-card h5 { margin: 0 0 4px 0; }
+            .preview-overlay { position: fixed; inset: 0; background: rgba(0,0,0,0.55); display: none; align-items: center; justify-content: center; z-index: 999; }
+            .preview-overlay.active { display: flex; }
+            .preview-card { background: #fff; padding: 20px; border-radius: 10px; max-width: 860px; width: 95%; box-shadow: 0 10px 30px rgba(0,0,0,0.18); }
+            .preview-card h3 { margin-top: 0; }
+            .rx-sheet { background: #fff; border-radius: 12px; padding: 24px; border: 1px solid #e6eef6; position: relative; overflow: hidden; }
+            .rx-sheet:before { content: ''; position: absolute; top: -60px; left: -60px; width: 240px; height: 140px; background: linear-gradient(135deg, #cfe6fb, #f8fbff); border-radius: 70px; opacity: 0.9; }
+            .rx-header { display: flex; justify-content: space-between; align-items: center; position: relative; z-index: 1; }
+            .rx-doctor { font-size: 22px; font-weight: 700; color: #2f6fb2; }
+            .rx-qual { letter-spacing: 2px; font-size: 12px; color: #2f6fb2; text-transform: uppercase; }
+            .rx-symbol { font-size: 22px; font-weight: 700; color: #2f6fb2; border: 2px solid #2f6fb2; border-radius: 50%; width: 44px; height: 44px; display: flex; align-items: center; justify-content: center; }
+            .rx-meta { margin-top: 16px; display: grid; gap: 10px; position: relative; z-index: 1; }
+            .rx-line { display: flex; gap: 10px; align-items: flex-end; }
+            .rx-label { min-width: 110px; font-size: 13px; color: #5b6f86; }
+            .rx-value { flex: 1; border-bottom: 1px solid #b9c9da; padding-bottom: 2px; font-size: 14px; color: #12212f; }
+            .rx-row { display: grid; grid-template-columns: 1fr 1fr; gap: 16px; }
+            .rx-body { margin-top: 18px; position: relative; z-index: 1; }
+            .rx-mark { font-size: 40px; font-weight: 700; color: #3c7cc0; margin-bottom: 6px; }
+            .rx-table { width: 100%; border-collapse: collapse; }
+            .rx-table th { text-align: left; font-size: 12px; text-transform: uppercase; color: #5b6f86; border-bottom: 1px solid #d7e0ea; padding: 6px 0; }
+            .rx-table td { padding: 6px 0; border-bottom: 1px dashed #e1e8f0; }
+            .rx-footer { display: flex; justify-content: flex-end; margin-top: 24px; }
+            .rx-sign { min-width: 200px; border-bottom: 1px solid #b9c9da; text-align: center; font-size: 12px; color: #5b6f86; padding-bottom: 4px; }
+            .actions { display: flex; gap: 10px; }
+            .link-button { display: inline-block; padding: 10px; border-radius: 6px; background: #0b6bd1; color: #fff; text-decoration: none; }
+            .link-button:hover { background: #084f9c; }
+            .error { color: #b00020; font-weight: bold; }
+            .badge { display: inline-block; padding: 4px 8px; background: #eef3ff; color: #0b6bd1; border-radius: 999px; font-size: 12px; }
+            """);
+
+    public static final Asset ADMIN_LOGIN_STYLESHEET = asset("admin-login", "css", """
+            body { max-width: none; margin: 0; padding: 0; background:
+                radial-gradient(circle at 15% 20%, rgba(16, 87, 140, 0.65), transparent 55%),
+                radial-gradient(circle at 70% 10%, rgba(9, 20, 35, 0.9), transparent 50%),
+                #05070b; color: #e6eef7; }
+            .admin-auth-shell { min-height: 100vh; display: grid; place-items: center; padding: 24px; }
+            .admin-auth-center { width: min(420px, 100%); display: grid; gap: 18px; justify-items: center; }
+            .admin-brand { text-align: center; display: grid; gap: 6px; text-transform: lowercase; }
+            .admin-brand .word { font-size: 28px; font-weight: 600; letter-spacing: 1px; color: #e5eef9; }
+            .admin-brand .word span { color: #3ca5ff; }
+            .admin-brand .tag { font-size: 18px; letter-spacing: 0.4px; color: #8fa4bc; }
+            .admin-card { width: 100%; background: linear-gradient(180deg, rgba(28, 32, 38, 0.96), rgba(18, 20, 24, 0.94));
+                border-radius: 12px; border: 1px solid rgba(255, 255, 255, 0.06); padding: 20px 22px 24px;
+                display: grid; gap: 12px; box-shadow: 0 22px 50px rgba(0, 0, 0, 0.45); }
+            .admin-field { display: grid; gap: 6px; font-size: 12px; color: #a4b2c5; }
+            .admin-field input { background: rgba(255, 255, 255, 0.06); border: 1px solid rgba(255, 255, 255, 0.08);
+                border-radius: 8px; padding: 9px 12px; color: #e7eef7; font-size: 14px; }
+            .admin-field input:focus { outline: none; border-color: rgba(60, 165, 255, 0.7);
+                box-shadow: 0 0 0 2px rgba(60, 165, 255, 0.2); }
+            .admin-btn { margin-top: 4px; padding: 10px 12px; border: none; border-radius: 8px; font-size: 14px;
+                font-weight: 600; color: #f1f6ff; background: linear-gradient(90deg, #2b6dff, #3b8bff); cursor: pointer; }
+            .admin-btn:hover { transform: translateY(-1px); box-shadow: 0 10px 24px rgba(44, 116, 255, 0.3); }
+            .admin-error { margin: 0; font-size: 13px; color: #ff8a8a; }
+            """);
+
+    public static final Asset MESSAGE_STYLESHEET = asset("message", "css", """
+            body { font-family: Arial, sans-serif; background: #f4f6f8; color: #12212f; margin: 40px auto; max-width: 640px; padding: 0 16px; }
+            .card { background: #fff; padding: 16px; border-radius: 10px; box-shadow: 0 4px 10px rgba(0,0,0,0.06); }
+            .actions { display: flex; gap: 10px; margin-top: 12px; }
+            .btn { display: inline-block; padding: 10px 14px; border-radius: 6px; text-decoration: none; color: #fff; }
+            .yes { background: #15803d; }
+            .no { background: #b00020; }
+            """);
+
+    public static final Asset SCRIPT = asset("pages", "js", """
+            function addMedicationRowByForm(form){var tbody=form.querySelector('tbody');var tr=document.createElement('tr');tr.innerHTML='<td><input name="medName" placeholder="Medication" required></td><td><input name="dosage" placeholder="Dosage" required></td><td><input name="days" placeholder="Days" required></td><td><button type="button" onclick="deleteMedicationRow(this)">Delete</button></td>';tbody.appendChild(tr);return tr;}
+            function deleteMedicationRow(btn){var tr=btn.closest('tr');if(tr){tr.remove();}}
+            function addMedicationRow(btn){addMedicationRowByForm(btn.closest('form'));}
+            function nextEmptyMedicationInputs(form){var names=[...form.querySelectorAll('input[name="medName"]')];var doses=[...form.querySelectorAll('input[name="dosage"]')];var days=[...form.querySelectorAll('input[name="days"]')];for(var i=0;i<names.length;i++){if(names[i].value.trim()===''&&doses[i].value.trim()===''&&days[i].value.trim()===''){return {name:names[i],dose:doses[i],days:days[i]};}}var row=addMedicationRowByForm(form);var inputs=row.querySelectorAll('input');return {name:inputs[0],dose:inputs[1],days:inputs[2]};}
+            function parseMedicationSpeech(text){var raw=(text||'').trim();if(raw===''){return null;}var parts=raw.split(/,|;/).map(function(p){return p.trim();}).filter(function(p){return p!=='';});if(parts.length>=3){return {list:parts};}var numberWords='one|two|three|four|five|six|seven|eight|nine|ten|eleven|twelve';function normalizeCount(token){if(!token){return '';}var map={one:'1',two:'2',three:'3',four:'4',five:'5',six:'6',seven:'7',eight:'8',nine:'9',ten:'10',eleven:'11',twelve:'12'};var lower=token.toLowerCase();return map[lower]||token;}var daysText='';var daysMatch=raw.match(new RegExp('\\\\bfor\\\\s+([0-9]+|'+numberWords+')\\\\s*(day|days|week|weeks)\\\\b','i'));if(daysMatch){daysText=normalizeCount(daysMatch[1])+' '+daysMatch[2];}var dosageText='';var doseMatch=raw.match(new RegExp('\\\\b([0-9]+|'+numberWords+')\\\\s*(x|times?)\\\\s*(a|per)?\\\\s*day\\\\b','i'));if(doseMatch){var count=normalizeCount(doseMatch[1]);dosageText=count==='1'?'once a day':count+' times a day';}else if(/\\bonce\\s+a\\s+day\\b/i.test(raw)){dosageText='once a day';}else if(/\\btwice\\s+a\\s+day\\b/i.test(raw)){dosageText='twice a day';}else if(/\\bthrice\\s+a\\s+day\\b/i.test(raw)){dosageText='thrice a day';}else{var everyMatch=raw.match(new RegExp('\\\\bevery\\\\s+([0-9]+|'+numberWords+')\\\\s*(hour|hours)\\\\b','i'));if(everyMatch){dosageText='every '+normalizeCount(everyMatch[1])+' '+everyMatch[2];}}var name=raw.replace(new RegExp('\\\\bfor\\\\s+(?:[0-9]+|'+numberWords+')\\\\s*(day|days|week|weeks)\\\\b','ig'),'').replace(new RegExp('\\\\b(?:[0-9]+|'+numberWords+')\\\\s*(x|times?)\\\\s*(a|per)?\\\\s*day\\\\b','ig'),'').replace(/\\bonce\\s+a\\s+day\\b/ig,'').replace(/\\btwice\\s+a\\s+day\\b/ig,'').replace(/\\bthrice\\s+a\\s+day\\b/ig,'').replace(new RegExp('\\\\bevery\\\\s+(?:[0-9]+|'+numberWords+')\\\\s*(hour|hours)\\\\b','ig'),'').replace(/\\s{2,}/g,' ').trim();return {name:name,dose:dosageText,days:daysText};}
+            function fillMedicationFromSpeech(form, transcript){var cleaned=(transcript||'').trim();if(cleaned===''){return;}var parsed=parseMedicationSpeech(cleaned);if(!parsed){return;}if(parsed.list){var parts=parsed.list;var idx=0;while(idx+2<parts.length){var inputs=nextEmptyMedicationInputs(form);inputs.name.value=parts[idx];inputs.dose.value=parts[idx+1];inputs.days.value=parts[idx+2];idx+=3;}return;}var inputs=nextEmptyMedicationInputs(form);if(parsed.name){inputs.name.value=parsed.name;}if(parsed.dose){inputs.dose.value=parsed.dose;}if(parsed.days){inputs.days.value=parsed.days;}}
+            function fillMedicationFromNlp(form, transcript){var cleaned=(transcript||'').trim();if(cleaned===''){return;}if(cleaned.indexOf(',')!==-1||cleaned.indexOf(';')!==-1){fillMedicationFromSpeech(form, cleaned);return;}fetch('/nlp/medication',{method:'POST',headers:{'Content-Type':'application/x-www-form-urlencoded'},body:'transcript='+encodeURIComponent(cleaned)}).then(function(response){if(!response.ok){throw new Error('bad');}return response.json();}).then(function(payload){if(!payload||!payload.ok){throw new Error('bad');}var inputs=nextEmptyMedicationInputs(form);if(payload.medication){inputs.name.value=payload.medication;}if(payload.dosage){inputs.dose.value=payload.dosage;}if(payload.days){inputs.days.value=payload.days;}if(!payload.medication&&!payload.dosage&&!payload.days){throw new Error('empty');}}).catch(function(){fillMedicationFromSpeech(form, cleaned);});}
+            function startMedicationVoice(btn){var form=btn.closest('form');var Speech=window.SpeechRecognition||window.webkitSpeechRecognition;if(!Speech){alert('Voice input is not supported in this browser.');return;}var recognition=new Speech();recognition.lang='en-US';recognition.interimResults=false;recognition.maxAlternatives=1;var originalText=btn.textContent;btn.disabled=true;btn.textContent='Listening...';recognition.onresult=function(event){var transcript=(event.results&&event.results[0]&&event.results[0][0]&&event.results[0][0].transcript)||'';fillMedicationFromNlp(form, transcript);};recognition.onerror=function(){alert('Voice input failed. Please try again.');};recognition.onend=function(){btn.disabled=false;btn.textContent=originalText;};recognition.start();}
+            function startDiagnosisVoice(btn){var form=btn.closest('form');var target=form.querySelector('textarea[name="diagnosis"]');if(!target){return;}var Speech=window.SpeechRecognition||window.webkitSpeechRecognition;if(!Speech){alert('Voice input is not supported in this browser.');return;}var recognition=new Speech();recognition.lang='en-US';recognition.interimResults=false;recognition.maxAlternatives=1;var originalText=btn.textContent;btn.disabled=true;btn.textContent='Listening...';recognition.onresult=function(event){var transcript=(event.results&&event.results[0]&&event.results[0][0]&&event.results[0][0].transcript)||'';target.value=transcript;};recognition.onerror=function(){alert('Voice input failed. Please try again.');};recognition.onend=function(){btn.disabled=false;btn.textContent=originalText;};recognition.start();}
+            function extractMedRows(form){var names=[...form.querySelectorAll('input[name="medName"]')];var doses=[...form.querySelectorAll('input[name="dosage"]')];var days=[...form.querySelectorAll('input[name="days"]')];var rows=[];for(var i=0;i<names.length;i++){var name=names[i].value.trim();var dose=doses[i].value.trim();var day=days[i].value.trim();if(name!==''||dose!==''||day!==''){rows.push({n:name,d:dose,t:day});}}return rows;}
+            function buildPrescriptionPayload(form){var rows=extractMedRows(form);if(rows.length===0){alert('Please add at least one medication row.');return false;}var plan=rows.map(function(r){return r.n+' | '+r.d+' | '+r.t;}).join('\\n');form.querySelector('input[name="medicationPlan"]').value=plan;form.querySelector('input[name="medication"]').value=plan;return true;}
+            function printPrescription(){var sheet=document.querySelector('#preview-body .rx-sheet');if(!sheet){return;}var printWindow=window.open('','_blank','width=900,height=700');if(!printWindow){alert('Pop-up blocked. Please allow pop-ups to print.');return;}var css=[].slice.call(document.styleSheets).map(function(s){try{return [].slice.call(s.cssRules).map(function(r){return r.cssText;}).join('\\n');}catch(e){return '';}}).join('\\n');printWindow.document.open();printWindow.document.write('<!DOCTYPE html><html><head><meta charset="UTF-8" /><title>Prescription</title><style>'+css+'</style></head><body>'+sheet.outerHTML+'</body></html>');printWindow.document.close();printWindow.focus();printWindow.print();printWindow.close();}
+            function previewPrescription(btn){var form=btn.closest('form');var rows=extractMedRows(form);if(rows.length===0){alert('Please add at least one medication row.');return;}var diagnosis=(form.querySelector('textarea[name="diagnosis"]')||{}).value||'';var patientName=form.dataset.patientName||'';var patientEmail=form.dataset.patientEmail||'';var patientAddress=form.dataset.patientAddress||'';var patientAge=form.dataset.patientAge||'';var patientGender=form.dataset.patientGender||'';var doctor=form.dataset.doctorName||'Doctor';var qual=form.dataset.doctorQual||'';var date=new Date().toLocaleDateString();var qualText=qual||'Qualifications not provided';var ageGender=patientAge||'';if(patientGender){ageGender=ageGender?ageGender+' / '+patientGender:patientGender;}var medsHtml=rows.map(function(r){return '<tr><td>'+escapeHtml(r.n)+'</td><td>'+escapeHtml(r.d)+'</td><td>'+escapeHtml(r.t)+'</td></tr>';}).join('');var modal=document.getElementById('preview');var body=document.getElementById('preview-body');body.innerHTML='<div class="rx-sheet">'+'<div class="rx-header"><div><div class="rx-doctor">'+escapeHtml(doctor)+'</div><div class="rx-qual">'+escapeHtml(qualText)+'</div></div><div class="rx-symbol">RX</div></div>'+'<div class="rx-meta">'+'<div class="rx-line"><span class="rx-label">Patient Name</span><span class="rx-value">'+escapeHtml(patientName)+'</span></div>'+'<div class="rx-line"><span class="rx-label">Address</span><span class="rx-value">'+escapeHtml(patientAddress)+'</span></div>'+'<div class="rx-row">'+'<div class="rx-line"><span class="rx-label">Age</span><span class="rx-value">'+escapeHtml(ageGender)+'</span></div>'+'<div class="rx-line"><span class="rx-label">Date</span><span class="rx-value">'+escapeHtml(date)+'</span></div>'+'</div>'+'<div class="rx-line"><span class="rx-label">Diagnosis</span><span class="rx-value">'+escapeHtml(diagnosis||'N/A')+'</span></div>'+'</div>'+'<div class="rx-body"><div class="rx-mark">Rx</div>'+'<table class="rx-table"><thead><tr><th>Medication</th><th>Dosage</th><th>Days</th></tr></thead><tbody>'+medsHtml+'</tbody></table>'+'</div>'+'<div class="rx-footer"><div class="rx-sign">Signature</div></div>'+'</div>'+'<div class="actions" style="margin-top:12px;"><button type="button" onclick="printPrescription()">Print</button><button type="button" onclick="closePreview()">Close</button></div>';modal.classList.add('active');}
+            function closePreview(){var modal=document.getElementById('preview');if(modal){modal.classList.remove('active');}}
+            function escapeHtml(str){return (str||'').replace(/&/g,'&amp;').replace(/</g,'&lt;').replace(/>/g,'&gt;').replace(/"/g,'&quot;');}
+            """);
+
+    private PageAssets() {
+    }
+
+    public static List<Asset> all() {
+        return List.of(STYLESHEET, ADMIN_LOGIN_STYLESHEET, MESSAGE_STYLESHEET, SCRIPT);
+    }
+
+    private static Asset asset(String name, String extension, String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            String hash = Base64.getUrlEncoder().withoutPadding().encodeToString(digest).substring(0, 12);
+            return new Asset("assets/" + name + "-" + hash + "." + extension, bytes);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package app.mail;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-process SMTP server for tests. It accepts {@code AUTH PLAIN} for user {@code u} with password
+ * {@code p}, refuses recipients starting with {@code bad}, and can be told to hang up mid-session.
+ */
+final class FakeSmtpServer implements AutoCloseable {
+    static final String USERNAME = "u";
+    static final String PASSWORD = "p";
+
+    final AtomicInteger connections = new AtomicInteger();
+    final AtomicInteger delivered = new AtomicInteger();
+    volatile boolean pipelining = true;
+    volatile boolean refuseMail;
+    volatile int dropAfter = -1;
+
+    private final ServerSocket server;
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+
+    FakeSmtpServer() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "fake-smtp");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int port() {
+        return server.getLocalPort();
+    }
+
+    SmtpSettings settings(String password) {
+        return new SmtpSettings("127.0.0.1", port(), SmtpSettings.Tls.NONE, USERNAME, password,
+                "rx@clinic.test", "clinic.test", 2, 2000, 30000, 500);
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (Socket client : clients) {
+            client.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (true) {
+            Socket client;
+            try {
+                client = server.accept();
+            } catch (IOException e) {
+                return;
+            }
+            connections.incrementAndGet();
+            clients.add(client);
+            Thread session = new Thread(() -> serve(client), "fake-smtp-session");
+            session.setDaemon(true);
+            session.start();
+        }
+    }
+
+    private void serve(Socket client) {
+        try (client) {
+            BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+            Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8);
+            out.write("220 fake ESMTP\r\n");
+            out.flush();
+            boolean authenticated = false;
+            boolean recipient = false;
+            int messages = 0;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase(Locale.ROOT);
+                if (command.startsWith("EHLO")) {
+                    out.write("250-fake\r\n" + (pipelining ? "250-PIPELINING\r\n" : "") + "250-AUTH LOGIN PLAIN\r\n250 8BITMIME\r\n");
+                } else if (command.startsWith("AUTH PLAIN ")) {
+                    String credentials = new String(Base64.getDecoder().decode(line.substring(11)), StandardCharsets.UTF_8);
+                    authenticated = credentials.equals("\0" + USERNAME + "\0" + PASSWORD);
+                    out.write(authenticated ? "235 ok\r\n" : "535 bad credentials\r\n");
+                } else if (command.startsWith("MAIL") && refuseMail) {
+                    out.write("421 shutting down\r\n");
+                    out.flush();
+                    return;
+                } else if (command.startsWith("MAIL")) {
+                    out.write(authenticated ? "250 ok\r\n" : "530 authentication required\r\n");
+                    recipient = false;
+                } else if (command.startsWith("RCPT")) {
+                    recipient = !command.contains("<BAD");
+                    out.write(recipient ? "250 ok\r\n" : "550 no such user\r\n");
+                } else if (command.equals("DATA")) {
+                    if (!recipient) {
+                        out.write("554 no valid recipients\r\n");
+                    } else {
+                        out.write("354 go ahead\r\n");
+                        out.flush();
+                        String data;
+                        while ((data = in.readLine()) != null && !data.equals(".")) {
+                            // discard the message body
+                        }
+                        delivered.incrementAndGet();
+                        out.write("250 queued\r\n");
+                        if (dropAfter > 0 && ++messages >= dropAfter) {
+                            out.flush();
+                            return;
+                        }
+                    }
+                } else if (command.equals("RSET")) {
+                    out.write("250 ok\r\n");
+                } else if (command.equals("QUIT")) {
+                    out.write("221 bye\r\n");
+                    out.flush();
+                    return;
+                } else {
+                    out.write("502 unknown command\r\n");
+                }
+                if (!in.ready()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException ignored) {
+        } finally {
+            clients.remove(client);
+        }
+    }
+}
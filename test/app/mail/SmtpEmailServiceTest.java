@@ -0,0 +1,109 @@
+package app.mail;
+
+import app.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SmtpEmailServiceTest {
+    private FakeSmtpServer server;
+    private SmtpEmailService service;
+
+    @BeforeEach
+    void start() throws Exception {
+        server = new FakeSmtpServer();
+        service = new SmtpEmailService(server.settings(FakeSmtpServer.PASSWORD), new MetricsRegistry());
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.close();
+    }
+
+    @Test
+    void bulkSendReusesConnectionsUpToTheMessageLimit() {
+        Map<Integer, RuntimeException> failures = service.sendEmails(messages(1000));
+
+        assertEquals(Map.of(), failures);
+        assertEquals(1000, server.delivered.get());
+        assertEquals(2, server.connections.get());
+    }
+
+    @Test
+    void bulkSendWorksWithoutPipelining() {
+        server.pipelining = false;
+
+        assertEquals(Map.of(), service.sendEmails(messages(50)));
+        assertEquals(50, server.delivered.get());
+    }
+
+    @Test
+    void rejectedRecipientFailsOnlyItsOwnMessage() {
+        List<EmailMessage> messages = messages(20);
+        messages.set(5, new EmailMessage("bad5@clinic.test", "subject", "body"));
+        messages.set(9, new EmailMessage("not an address", "subject", "body"));
+
+        Map<Integer, RuntimeException> failures = service.sendEmails(messages);
+
+        assertEquals(Set.of(5, 9), failures.keySet());
+        assertTrue(failures.get(5).getMessage().contains("550"), failures.get(5).getMessage());
+        assertEquals(18, server.delivered.get());
+        assertEquals(1, server.connections.get());
+    }
+
+    @Test
+    void droppedConnectionIsReplacedWithoutLosingMessages() {
+        server.dropAfter = 100;
+
+        Map<Integer, RuntimeException> failures = service.sendEmails(messages(250));
+
+        assertTrue(server.connections.get() >= 3, "connections: " + server.connections.get());
+        assertTrue(failures.size() <= 2, "failures: " + failures.keySet());
+        for (RuntimeException failure : failures.values()) {
+            assertTrue(failure.getMessage().contains("connection lost"), failure.getMessage());
+        }
+        assertTrue(server.delivered.get() + failures.size() >= 250,
+                "delivered " + server.delivered.get() + " with " + failures.size() + " failures");
+    }
+
+    @Test
+    void serverThatRefusesAndHangsUpFailsTheBatchWithoutRetryingForever() {
+        assertEquals(Map.of(), service.sendEmails(messages(10)));
+        server.refuseMail = true;
+        int before = server.connections.get();
+
+        Map<Integer, RuntimeException> failures = service.sendEmails(messages(50));
+
+        assertEquals(50, failures.size());
+        assertTrue(server.connections.get() - before <= 1, "new connections: " + (server.connections.get() - before));
+
+        server.refuseMail = false;
+        assertEquals(Map.of(), service.sendEmails(messages(10)));
+    }
+
+    @Test
+    void wrongCredentialsFailToConnect() {
+        SmtpEmailService wrong = new SmtpEmailService(server.settings("wrong"), new MetricsRegistry());
+
+        RuntimeException failure = assertThrows(RuntimeException.class, () -> wrong.sendEmail("a@clinic.test", "subject", "body"));
+
+        assertTrue(failure.getCause().getMessage().contains("535"), failure.getCause().getMessage());
+    }
+
+    private static List<EmailMessage> messages(int count) {
+        List<EmailMessage> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(new EmailMessage("patient" + i + "@clinic.test", "Prescription " + i, "Take one tablet daily.\n." + i));
+        }
+        return messages;
+    }
+}